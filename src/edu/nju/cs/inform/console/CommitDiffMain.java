@@ -0,0 +1,44 @@
+package edu.nju.cs.inform.console;
+
+import edu.nju.cs.inform.core.type.CodeElementChange;
+import edu.nju.cs.inform.jgit.CommitRangeComparer;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lists the code element changes between two commits of a local repository, reading only the
+ * java files the commits differ in.
+ *
+ * Arguments: the repository directory, the old revision and the new revision, e.g. HEAD~1 HEAD.
+ */
+public class CommitDiffMain {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: CommitDiffMain <repository> <old revision> <new revision>");
+            return;
+        }
+
+        FileRepositoryBuilder builder = new FileRepositoryBuilder();
+        try (Repository repository = builder.findGitDir(new File(args[0])).build()) {
+            CommitRangeComparer comparer;
+            // the changed files are parsed on at most one worker per core
+            ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            try {
+                comparer = new CommitRangeComparer(repository, args[1], args[2], pool, null);
+            } finally {
+                pool.shutdown();
+            }
+            comparer.diff();
+
+            System.out.println("-----------------Code Elements Diff-----------------");
+            System.out.println(comparer.getChangedFilePaths().size() + " changed java files");
+            for (CodeElementChange elementChange : comparer.getCodeElementsComparer().getCodeElementChangesList()) {
+                System.out.println(elementChange.getElementName() + " " + elementChange.getElementType() + " " + elementChange.getChangeType());
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import edu.nju.cs.inform.util.JavaElement;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by neo on 16/4/8.
@@ -20,6 +21,14 @@ public class InformMain {
         String new_Version_file = args[1];
         String old_Version_file = args[2];
         String requirement_file = args[3];
+        // optional IR model: vsm (default), jsd, bm25, ql or lsi
+        String modelType = args.length > 4 ? IRModelConst.getModelType(args[4]) : IRModelConst.VSM;
+        if (modelType == null) {
+            System.out.println("Unknown IR model " + args[4] + ", expected one of vsm, jsd, bm25, ql, lsi");
+            return;
+        }
+        // optional number of requirements kept per change, by default every link counts
+        int linksPerChange = args.length > 5 ? Integer.parseInt(args[5]) : 0;
         String old_source_Path;
         String new_source_Path;
         String requirement_Path;
@@ -49,7 +58,7 @@ public class InformMain {
 
         requirement_Path=getUnzipfilePath(newcode_list,filePath)+requirement_file;
 
-        listComparer(new_source_Path, old_source_Path, requirement_Path, filePath);
+        listComparer(new_source_Path, old_source_Path, requirement_Path, filePath, modelType, linksPerChange);
 
     }
     private  static String getUnzipfilePath(ArrayList<String> newcode_list,String filePath){
@@ -91,10 +100,17 @@ public class InformMain {
         return old_source_Path;
     }
 
-    private static void listComparer(String new_source_path, String old_source_path, String requirement_Path, String filePath) {
+    private static void listComparer(String new_source_path, String old_source_path, String requirement_Path, String filePath, String modelType,
+                                     int linksPerChange) {
         CodeElementsComparer comparer;
         System.out.println("-----------------Code Elements Diff-----------------");
-        comparer = new CodeElementsComparer(new_source_path, old_source_path);
+        // both versions are parsed on at most one worker per core
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            comparer = new CodeElementsComparer(new_source_path, old_source_path, pool);
+        } finally {
+            pool.shutdown();
+        }
         comparer.diff();
         Set<CodeElementChange> codeElementChangeList = comparer.getCodeElementChangesList();
         for (CodeElementChange elementChange : codeElementChangeList) {
@@ -108,8 +124,12 @@ public class InformMain {
         final ArtifactsCollection requirementCollection = ArtifactsReader.getCollections(requirement_Path, ".txt");
 
         // retrieval change description to requirement
-        Retrieval retrieval = new Retrieval(changeDescriptionCollection, requirementCollection, IRModelConst.VSM);
-        retrieval.tracing();
+        Retrieval retrieval = new Retrieval(changeDescriptionCollection, requirementCollection, modelType);
+        if (linksPerChange > 0) {
+            retrieval.tracingPerChange(linksPerChange);
+        } else {
+            retrieval.tracing(10);
+        }
 
         Map<String, Double> candidatedOutdatedRequirementsRank = retrieval.getCandidateOutdatedRequirementsRank();
         //将map转换成list
@@ -0,0 +1,157 @@
+package edu.nju.cs.inform.console;
+
+import edu.nju.cs.inform.core.preprocess.CamelCase;
+import edu.nju.cs.inform.core.preprocess.CleanUp;
+import edu.nju.cs.inform.core.preprocess.SentenceSplitter;
+import edu.nju.cs.inform.util._;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the character-class scanners of CleanUp, CamelCase and SentenceSplitter with the
+ * regex implementations they replaced, on the sources under data/sample.
+ *
+ * Each benchmark is warmed up, then timed over several iterations, and the outputs of both
+ * versions are checked to be identical. Run main() from the project directory. The regex
+ * versions are public, TokenizerEquivalenceTest checks the scanners against them.
+ */
+public class TokenizerBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    private interface Stage {
+        String run(String input);
+    }
+
+    public static void main(String[] args) {
+        List<String> raw = readSources(new File("data/sample"));
+        List<String> cleaned = new ArrayList<>();
+        List<String> camelCased = new ArrayList<>();
+        for (String text : raw) {
+            cleaned.add(CleanUp.chararctorClean(text));
+            camelCased.add(CamelCase.split(CleanUp.chararctorClean(text)));
+        }
+        System.out.println(raw.size() + " files");
+
+        compare("chararctorClean", raw, new Stage() {
+            public String run(String input) {
+                return regexChararctorClean(input);
+            }
+        }, new Stage() {
+            public String run(String input) {
+                return CleanUp.chararctorClean(input);
+            }
+        });
+
+        compare("CamelCase.split", cleaned, new Stage() {
+            public String run(String input) {
+                return regexCamelCaseSplit(input);
+            }
+        }, new Stage() {
+            public String run(String input) {
+                return CamelCase.split(input);
+            }
+        });
+
+        compare("SentenceSplitter.process", camelCased, new Stage() {
+            public String run(String input) {
+                return regexSentenceSplitterProcess(input);
+            }
+        }, new Stage() {
+            public String run(String input) {
+                return SentenceSplitter.process(input);
+            }
+        });
+    }
+
+    private static void compare(String name, List<String> inputs, Stage regex, Stage scanner) {
+        for (String input : inputs) {
+            if (!regex.run(input).equals(scanner.run(input))) {
+                _.abort(name + " differs from the regex version");
+            }
+        }
+        double regexMs = measure(inputs, regex);
+        double scannerMs = measure(inputs, scanner);
+        System.out.format("%-26s regex %8.2f ms/op   scanner %8.2f ms/op   speedup %.1fx%n",
+                name, regexMs, scannerMs, regexMs / scannerMs);
+    }
+
+    private static double measure(List<String> inputs, Stage stage) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            for (String input : inputs) {
+                checksum += stage.run(input).length();
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            for (String input : inputs) {
+                checksum += stage.run(input).length();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        // keeps the results alive so the work cannot be optimized away
+        if (checksum == 42) {
+            System.out.println();
+        }
+        return elapsed / 1e6 / MEASURED_ITERATIONS;
+    }
+
+    private static List<String> readSources(File dir) {
+        List<String> sources = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return sources;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                sources.addAll(readSources(f));
+            } else if (f.getName().endsWith(".java") || f.getName().endsWith(".txt")) {
+                sources.add(_.readFile(f.getPath()));
+            }
+        }
+        return sources;
+    }
+
+    public static String regexChararctorClean(String input) {
+        StringBuilder sb = new StringBuilder();
+        Pattern p = Pattern.compile("[a-z|A-Z]+");
+        Matcher m = p.matcher(input);
+        while (m.find()) {
+            sb.append(m.group().trim());
+            sb.append(" ");
+        }
+        return sb.toString();
+    }
+
+    public static String regexCamelCaseSplit(String input) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : input.split(" ")) {
+            for (String cc : word.split("(?<!^)(?=[A-Z])")) {
+                sb.append(cc);
+                sb.append(" ");
+            }
+        }
+        return sb.toString();
+    }
+
+    public static String regexSentenceSplitterProcess(String input) {
+        StringTokenizer st = new StringTokenizer(input, " .,:;'\"[]{})(-_=+~!@#$%^&*<>\n\t\r1234567890");
+        StringBuilder result = new StringBuilder();
+        while (st.hasMoreTokens()) {
+            Matcher m = Pattern.compile("[A-Z][a-z]+|[a-z]+|[A-Z]+").matcher(st.nextToken());
+            while (m.find()) {
+                if (1 < m.group().length()) {
+                    result.append(m.group() + " ");
+                }
+            }
+        }
+        return result.toString();
+    }
+}
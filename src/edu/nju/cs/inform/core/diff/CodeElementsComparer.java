@@ -3,19 +3,25 @@ package edu.nju.cs.inform.core.diff;
 import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
 import edu.nju.cs.inform.core.type.*;
 import edu.nju.cs.inform.core.group.ChangeRegionAlgorithm;
-import edu.nju.cs.inform.io.ArtifactsReader;
+import edu.nju.cs.inform.core.jda.parser.ProjectCallRelationAnalyser;
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
 import edu.nju.cs.inform.io.ChangedArtifacts;
+import edu.nju.cs.inform.io.PreprocessingCache;
+import edu.nju.cs.inform.io.SourceTreeScanner;
 import edu.nju.cs.inform.core.relation.RelationInfo;
-import edu.nju.cs.inform.util.JavaElement;
+import edu.nju.cs.inform.util.ContentHash;
+import edu.nju.cs.inform.util.ElementIdSet;
+import edu.nju.cs.inform.util.ElementSymbolTable;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by niejia on 16/3/15.
  */
 public class CodeElementsComparer {
 
-    private String postfixName = ".java";
+    private static final String postfixName = ".java";
 
     private SourceCodeElements newVersionCodeElements;
     private SourceCodeElements oldVersionCodeElements;
@@ -25,6 +31,9 @@ public class CodeElementsComparer {
 
     private Set<CodeElementChange> methodFieldsChangesList;
 
+    // changes of single overloads, named by signature, next to the method name changes above
+    private Set<CodeElementChange> methodSignatureChangesList;
+
     private ArtifactsCollection changeDescriptionCollection;
     private RelationInfo relationInfo;
 
@@ -35,34 +44,153 @@ public class CodeElementsComparer {
     private String newVersionCodeDirPath;
     private String oldVersionCodeDirPath;
 
+    // the elements of both versions are interned here, for this comparison only
+    private final ElementSymbolTable symbols;
+
+    // every file of both versions is parsed once for the elements and the call relations
+    private CompilationUnitRegistry compilationUnitRegistry;
+
+    // call relations of both versions, taken from the ASTs before the registry is cleared
+    private ProjectCallRelationAnalyser newVersionCallRelations;
+    private ProjectCallRelationAnalyser oldVersionCallRelations;
+
     public CodeElementsComparer(String newVersionCodeDirPath, String oldVersionCodeDirPath) {
-        ArtifactsCollection newVersionCodeCollection = ArtifactsReader.getCollections(newVersionCodeDirPath, postfixName);
-        ArtifactsCollection oldVersionCodeCollection = ArtifactsReader.getCollections(oldVersionCodeDirPath, postfixName);
+        this(newVersionCodeDirPath, oldVersionCodeDirPath, null);
+    }
+
+    /**
+     * @param pool pool the new version code is preprocessed and both versions are parsed on, or null
+     *             to do it sequentially
+     */
+    public CodeElementsComparer(String newVersionCodeDirPath, String oldVersionCodeDirPath, ForkJoinPool pool) {
+        this(newVersionCodeDirPath, oldVersionCodeDirPath, pool, null);
+    }
 
-        setPreprocessedNewVersionCodeCollection(newVersionCodeCollection);
+    /**
+     * @param cache cache of preprocessed and parsed files shared by both versions, or null to process every file
+     */
+    public CodeElementsComparer(String newVersionCodeDirPath, String oldVersionCodeDirPath, ForkJoinPool pool, PreprocessingCache cache) {
+        this(newVersionCodeDirPath, oldVersionCodeDirPath, pool, cache, true);
+    }
+
+    /**
+     * @param methodBodies false to parse only the signatures of both versions, such a comparer
+     *                     only supports diffElements()
+     */
+    public CodeElementsComparer(String newVersionCodeDirPath, String oldVersionCodeDirPath, ForkJoinPool pool,
+                                PreprocessingCache cache, boolean methodBodies) {
+        // the sources of both versions are every java file below their directories, nested packages included
+        this(new SourceTreeScanner(newVersionCodeDirPath, "*" + postfixName).getCollection(pool),
+                new SourceTreeScanner(oldVersionCodeDirPath, "*" + postfixName).getCollection(pool),
+                newVersionCodeDirPath, oldVersionCodeDirPath, pool, cache, methodBodies);
+    }
 
-        this.newVersionCodeElements = new SourceCodeElements(newVersionCodeCollection);
-        this.oldVersionCodeElements = new SourceCodeElements(oldVersionCodeCollection);
+    /**
+     * Compares two sets of java sources that are not read from directories, e.g. only the files
+     * changed between two commits. Without the directories of both versions there are no call
+     * relations, such a comparer only supports diffElements().
+     */
+    public CodeElementsComparer(ArtifactsCollection newVersionCodeCollection, ArtifactsCollection oldVersionCodeCollection,
+                                ForkJoinPool pool, PreprocessingCache cache) {
+        this(newVersionCodeCollection, oldVersionCodeCollection, null, null, pool, cache, true);
+    }
+
+    private CodeElementsComparer(ArtifactsCollection newVersionCodeCollection, ArtifactsCollection oldVersionCodeCollection,
+                                 String newVersionCodeDirPath, String oldVersionCodeDirPath, ForkJoinPool pool,
+                                 PreprocessingCache cache, boolean methodBodies) {
+        this.compilationUnitRegistry = new CompilationUnitRegistry(methodBodies);
+        this.symbols = new ElementSymbolTable();
+
+        if (cache == null) {
+            setPreprocessedNewVersionCodeCollection(newVersionCodeCollection, pool);
+        } else {
+            preprocessedNewVersionCodeCollection = cache.handleJavaFiles(newVersionCodeCollection, pool);
+        }
+
+        // cached elements hold the method bodies, they are neither read nor written without them
+        PreprocessingCache elementsCache = methodBodies ? cache : null;
+        parseSources(pool, elementsCache, newVersionCodeCollection, oldVersionCodeCollection);
+        SourceCodeElements[] versions = SourceCodeElements.parseVersions(pool, elementsCache,
+                compilationUnitRegistry, symbols, newVersionCodeCollection, oldVersionCodeCollection);
+        this.newVersionCodeElements = versions[0];
+        this.oldVersionCodeElements = versions[1];
         this.codeElementChangesList = new LinkedHashSet<>();
         this.methodFieldsChangesList = new LinkedHashSet<>();
+        this.methodSignatureChangesList = new LinkedHashSet<>();
         this.changeDescriptionCollection = new ArtifactsCollection();
         this.elementsInGroup = new LinkedHashMap<>();
         this.newVersionCodeDirPath = newVersionCodeDirPath;
         this.oldVersionCodeDirPath = oldVersionCodeDirPath;
     }
 
+    /**
+     * diffElements() and the change regions of the changed elements
+     *
+     * @throws IllegalStateException for a signatures only comparer and for a comparer of two
+     *                               collections, which has no code directories to take the call relations from
+     */
     public void diff() {
-        identifyChanges(newVersionCodeElements.getPackagesList(), oldVersionCodeElements.getPackagesList(), ElementType.Package);
-        identifyChanges(newVersionCodeElements.getClassesList(), oldVersionCodeElements.getClassesList(), ElementType.Class);
-        identifyChanges(newVersionCodeElements.getMethodsList(), oldVersionCodeElements.getMethodsList(), ElementType.Method);
-        identifyChanges(newVersionCodeElements.getFieldsList(), oldVersionCodeElements.getFieldsList(), ElementType.Field);
+        if (!compilationUnitRegistry.hasMethodBodies()) {
+            throw new IllegalStateException("Change regions need the method bodies, use diffElements() for a signatures only comparer");
+        }
+        if (newVersionCodeDirPath == null) {
+            throw new IllegalStateException("Change regions need the code directories of both versions, use diffElements() for this comparer");
+        }
+        newVersionCallRelations = new ProjectCallRelationAnalyser(newVersionCodeDirPath, compilationUnitRegistry);
+        oldVersionCallRelations = new ProjectCallRelationAnalyser(oldVersionCodeDirPath, compilationUnitRegistry);
+        diffElements();
+//        extractChangeDescription();
+
+        ChangeRegionAlgorithm algorithm = new ChangeRegionAlgorithm(this);
+    }
+
+    /**
+     * Added and removed packages, classes, methods and fields, and modified methods and fields,
+     * without the change regions of diff(). A signatures only comparer reports no modified elements.
+     */
+    public void diffElements() {
+        identifyChanges(newVersionCodeElements.getPackageIds(), oldVersionCodeElements.getPackageIds(), ElementType.Package);
+        identifyChanges(newVersionCodeElements.getClassIds(), oldVersionCodeElements.getClassIds(), ElementType.Class);
+        identifyChanges(newVersionCodeElements.getMethodIds(), oldVersionCodeElements.getMethodIds(), ElementType.Method);
+        identifyChanges(newVersionCodeElements.getFieldIds(), oldVersionCodeElements.getFieldIds(), ElementType.Field);
+        if (compilationUnitRegistry.hasMethodBodies()) {
+            identifyModifications(newVersionCodeElements.getMethodIds(), oldVersionCodeElements.getMethodIds(),
+                    ElementType.Method, codeElementChangesList);
+            identifyModifications(newVersionCodeElements.getFieldIds(), oldVersionCodeElements.getFieldIds(),
+                    ElementType.Field, codeElementChangesList);
+        }
+
+        identifyChanges(newVersionCodeElements.getMethodSignatureIds(), oldVersionCodeElements.getMethodSignatureIds(),
+                ElementType.Method, methodSignatureChangesList);
+        if (compilationUnitRegistry.hasMethodBodies()) {
+            identifyModifications(newVersionCodeElements.getMethodSignatureIds(), oldVersionCodeElements.getMethodSignatureIds(),
+                    ElementType.Method, methodSignatureChangesList);
+        }
 
         findMethodFieldChanges();
         // filter the level duplication
         filterOn();
-//        extractChangeDescription();
+        // the elements and the call graphs are taken, nothing reads the ASTs after this
+        compilationUnitRegistry.clear();
+    }
 
-        ChangeRegionAlgorithm algorithm = new ChangeRegionAlgorithm(this);
+    /**
+     * Parses the sources of both versions into the registry ahead of the elements, each distinct
+     * source once. Sources whose elements are cached are left out, the call relations of diff()
+     * parse them on their first registry miss.
+     */
+    private void parseSources(ForkJoinPool pool, PreprocessingCache cache, ArtifactsCollection newVersionCodeCollection,
+                              ArtifactsCollection oldVersionCodeCollection) {
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (ArtifactsCollection collection : new ArtifactsCollection[]{newVersionCodeCollection, oldVersionCodeCollection}) {
+            for (Artifact artifact : collection.values()) {
+                String hash = ContentHash.sha1(artifact.text);
+                if (cache == null || !cache.hasElements(hash)) {
+                    sources.put(hash, artifact.text);
+                }
+            }
+        }
+        compilationUnitRegistry.parseSources(sources, pool);
     }
 
     private void findMethodFieldChanges() {
@@ -76,8 +204,8 @@ public class CodeElementsComparer {
 
     private void filterOn() {
 
-        Set<String> changedPackagesList = getChangedElementsByElementType(ElementType.Package);
-        Set<String> changedClassesList = getChangedElementsByElementType(ElementType.Class);
+        BitSet changedPackagesList = getChangedElementsByElementType(ElementType.Package);
+        BitSet changedClassesList = getChangedElementsByElementType(ElementType.Class);
 
         Iterator iterator1 = codeElementChangesList.iterator();
 
@@ -103,16 +231,21 @@ public class CodeElementsComparer {
                 }
             }
         }
-    }
 
-    private boolean elementBelongsToChangedClass(String elementName, Set<String> changedClassesList) {
-        String classNameOfTarget = JavaElement.getClassName(elementName);
-        for (String cp : changedClassesList) {
-            if (cp.equals(classNameOfTarget)) {
-                return true;
+        Iterator<CodeElementChange> iterator3 = methodSignatureChangesList.iterator();
+
+        while (iterator3.hasNext()) {
+            String methodName = SourceCodeElements.getMethodName(iterator3.next().getElementName());
+            if (elementBelongsToChangedClass(methodName, changedClassesList)) {
+                iterator3.remove();
             }
         }
-        return false;
+    }
+
+    private boolean elementBelongsToChangedClass(String elementName, BitSet changedClassesList) {
+        int id = symbols.getId(elementName);
+        int classId = id == ElementSymbolTable.NONE ? ElementSymbolTable.NONE : symbols.getClassId(id);
+        return classId != ElementSymbolTable.NONE && changedClassesList.get(classId);
     }
 
     private void extractChangeDescription() {
@@ -130,48 +263,68 @@ public class CodeElementsComparer {
         }
     }
 
-    private boolean classBelongsToChangedPackage(String className, Set<String> changedPackagesList) {
-        String packageNameOfTarget = JavaElement.getPackageName(className);
-        for (String cp : changedPackagesList) {
-            if (cp.equals(packageNameOfTarget)) {
-                return true;
-            }
-        }
-        return false;
+    private boolean classBelongsToChangedPackage(String className, BitSet changedPackagesList) {
+        int id = symbols.getId(className);
+        int packageId = id == ElementSymbolTable.NONE ? ElementSymbolTable.NONE : symbols.getPackageId(id);
+        return packageId != ElementSymbolTable.NONE && changedPackagesList.get(packageId);
     }
 
-    private Set<String> getChangedElementsByElementType(ElementType elementType) {
-        Set<String> changedElementsList = new LinkedHashSet<>();
+    /**
+     * @return ids of the changed elements of the type, every changed element is interned
+     */
+    private BitSet getChangedElementsByElementType(ElementType elementType) {
+        BitSet changedElementsList = new BitSet();
 
         for (CodeElementChange elementChange : codeElementChangesList) {
             if (elementChange.getElementType().equals(elementType)) {
-                changedElementsList.add(elementChange.getElementName());
+                changedElementsList.set(symbols.getId(elementChange.getElementName()));
             }
         }
 
         return changedElementsList;
     }
 
-    private void identifyChanges(Set<String> elementsInNewVersionCode, Set<String> elementsInOldVersionCode, ElementType elementType) {
-        Set<String> unchangedElements = new LinkedHashSet<>();
+    private void identifyChanges(ElementIdSet elementsInNewVersionCode, ElementIdSet elementsInOldVersionCode, ElementType elementType) {
+        identifyChanges(elementsInNewVersionCode, elementsInOldVersionCode, elementType, codeElementChangesList);
+    }
 
-        for (String p : elementsInNewVersionCode) {
-            if (elementsInOldVersionCode.contains(p)) {
-                unchangedElements.add(p);
+    /**
+     * Both versions share the symbol table, an element is in both when its id is
+     */
+    private void identifyChanges(ElementIdSet elementsInNewVersionCode, ElementIdSet elementsInOldVersionCode,
+                                 ElementType elementType, Set<CodeElementChange> changesList) {
+        for (int i = 0; i < elementsInNewVersionCode.size(); i++) {
+            int p = elementsInNewVersionCode.get(i);
+            if (!elementsInOldVersionCode.contains(p)) {
+                CodeElementChange elementChange = new CodeElementChange(symbols.getName(p), elementType, ChangeType.Added);
+                changesList.add(elementChange);
             }
         }
 
-        for (String p : elementsInNewVersionCode) {
-            if (!unchangedElements.contains(p)) {
-                CodeElementChange elementChange = new CodeElementChange(p, elementType, ChangeType.Added);
-                codeElementChangesList.add(elementChange);
+        for (int i = 0; i < elementsInOldVersionCode.size(); i++) {
+            int p = elementsInOldVersionCode.get(i);
+            if (!elementsInNewVersionCode.contains(p)) {
+                CodeElementChange elementChange = new CodeElementChange(symbols.getName(p), elementType, ChangeType.Removed);
+                changesList.add(elementChange);
             }
         }
+    }
 
-        for (String p : elementsInOldVersionCode) {
-            if (!unchangedElements.contains(p)) {
-                CodeElementChange elementChange = new CodeElementChange(p, elementType, ChangeType.Removed);
-                codeElementChangesList.add(elementChange);
+    /**
+     * Elements of both versions whose fingerprints differ are modified, one hash lookup per element
+     */
+    private void identifyModifications(ElementIdSet elementsInNewVersionCode, ElementIdSet elementsInOldVersionCode,
+                                       ElementType elementType, Set<CodeElementChange> changesList) {
+        for (int i = 0; i < elementsInNewVersionCode.size(); i++) {
+            int p = elementsInNewVersionCode.get(i);
+            if (!elementsInOldVersionCode.contains(p)) {
+                continue;
+            }
+            String name = symbols.getName(p);
+            String oldFingerprint = oldVersionCodeElements.getFingerprint(name);
+            if (oldFingerprint != null && !oldFingerprint.equals(newVersionCodeElements.getFingerprint(name))) {
+                CodeElementChange elementChange = new CodeElementChange(name, elementType, ChangeType.Modified);
+                changesList.add(elementChange);
             }
         }
     }
@@ -184,6 +337,15 @@ public class CodeElementsComparer {
         return methodFieldsChangesList;
     }
 
+    /**
+     * @return added, removed and modified overloads, named like package.Class.method(int,String).
+     * The call relations only know method names, grouping works on getMethodFieldsChangesList()
+     * where a method is modified when any of its overloads changed.
+     */
+    public Set<CodeElementChange> getMethodSignatureChangesList() {
+        return methodSignatureChangesList;
+    }
+
     public ArtifactsCollection getChangeDescriptionCollection() {
         return changeDescriptionCollection;
     }
@@ -215,11 +377,11 @@ public class CodeElementsComparer {
     }
 
     public void setPreprocessedNewVersionCodeCollection(ArtifactsCollection codeCollection) {
-        preprocessedNewVersionCodeCollection = new ArtifactsCollection();
-        for (String id : codeCollection.keySet()) {
-            Artifact artifact = new Artifact(id, ArtifactPreprocessor.handleJavaFile(codeCollection.get(id).text));
-            preprocessedNewVersionCodeCollection.put(id, artifact);
-        }
+        setPreprocessedNewVersionCodeCollection(codeCollection, null);
+    }
+
+    public void setPreprocessedNewVersionCodeCollection(ArtifactsCollection codeCollection, ForkJoinPool pool) {
+        preprocessedNewVersionCodeCollection = ArtifactPreprocessor.handleJavaFiles(codeCollection, pool);
     }
 
     public ArtifactsCollection getChangedMethodsCollection() {
@@ -252,4 +414,29 @@ public class CodeElementsComparer {
     public String getOldVersionCodeDirPath() {
         return oldVersionCodeDirPath;
     }
+
+    /**
+     * @return the table the elements of both versions and their changes are interned into
+     */
+    public ElementSymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the ASTs of both versions, empty once diffElements() is done
+     */
+    public CompilationUnitRegistry getCompilationUnitRegistry() {
+        return compilationUnitRegistry;
+    }
+
+    /**
+     * @return the call relations of the new version, analysed by diff()
+     */
+    public ProjectCallRelationAnalyser getNewVersionCallRelations() {
+        return newVersionCallRelations;
+    }
+
+    public ProjectCallRelationAnalyser getOldVersionCallRelations() {
+        return oldVersionCallRelations;
+    }
 }
@@ -0,0 +1,54 @@
+package edu.nju.cs.inform.core.diff;
+
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
+import edu.nju.cs.inform.io.PreprocessingCache;
+import edu.nju.cs.inform.util.ElementSymbolTable;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a range of java files into one SourceCodeElements fragment per file, splitting the
+ * range across a ForkJoinPool. A fragment is only written by the worker that parses its file,
+ * and every fragment goes into the slot of its file, so merging them in slot order gives the
+ * same elements as parsing the files one after another.
+ */
+class ParseTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // below this many files a range is parsed on the current worker
+    private static final int THRESHOLD = 4;
+
+    private final String[] sources;
+    private final SourceCodeElements[] fragments;
+    private final PreprocessingCache cache;
+    private final CompilationUnitRegistry registry;
+    private final ElementSymbolTable symbols;
+    private final int from;
+    private final int to;
+
+    ParseTask(String[] sources, SourceCodeElements[] fragments, PreprocessingCache cache,
+              CompilationUnitRegistry registry, ElementSymbolTable symbols, int from, int to) {
+        this.sources = sources;
+        this.fragments = fragments;
+        this.cache = cache;
+        this.registry = registry;
+        this.symbols = symbols;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                fragments[i] = cache == null ? SourceCodeElements.parse(sources[i], registry, symbols)
+                        : cache.parseJavaFile(sources[i], registry);
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask(sources, fragments, cache, registry, symbols, from, middle),
+                    new ParseTask(sources, fragments, cache, registry, symbols, middle, to));
+        }
+    }
+}
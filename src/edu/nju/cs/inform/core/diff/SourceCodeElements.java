@@ -1,59 +1,254 @@
 package edu.nju.cs.inform.core.diff;
 
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
 import edu.nju.cs.inform.core.jdt.JavaElementsParser;
+import edu.nju.cs.inform.core.type.Artifact;
 import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.io.PreprocessingCache;
+import edu.nju.cs.inform.util.ContentHash;
+import edu.nju.cs.inform.util.ElementIdSet;
+import edu.nju.cs.inform.util.ElementSymbolTable;
 
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by niejia on 16/3/15.
  */
 public class SourceCodeElements {
 
+    // every element is interned into the table of the run, the id sets are what the comparer tests
+    private final ElementSymbolTable symbols;
+    private final ElementIdSet packageIds;
+    private final ElementIdSet classIds;
+    private final ElementIdSet methodIds;
+    private final ElementIdSet fieldIds;
+    private final ElementIdSet methodSignatureIds;
+
     private Set<String> packagesList;
     private Set<String> classesList;
     private Set<String> methodsList;
     private Set<String> fieldsList;
+    // methods with their parameter types, overloads of one method name are separate signatures
+    private Set<String> methodSignaturesList;
 
     private Map<String,String> classComments;
     private Map<String,String> methodComments;
     private Map<String,String> methodParameters;
     private Map<String,String> methodBody;
+    // normalized hash of the declaration of every method and field
+    private Map<String,String> fingerprints;
+
+    public SourceCodeElements() {
+        this(new ElementSymbolTable());
+    }
+
+    /**
+     * @param symbols table the names are interned into, shared with the other version to compare ids
+     */
+    public SourceCodeElements(ElementSymbolTable symbols) {
+        this.symbols = symbols;
+        packageIds = new ElementIdSet();
+        classIds = new ElementIdSet();
+        methodIds = new ElementIdSet();
+        fieldIds = new ElementIdSet();
+        methodSignatureIds = new ElementIdSet();
 
-    public SourceCodeElements(ArtifactsCollection codeCollection) {
         packagesList = new LinkedHashSet<>();
         classesList = new LinkedHashSet<>();
         methodsList = new LinkedHashSet<>();
         fieldsList = new LinkedHashSet<>();
+        methodSignaturesList = new LinkedHashSet<>();
 
         classComments = new HashMap<>();
         methodComments = new HashMap<>();
         methodParameters = new HashMap<>();
         methodBody = new HashMap<>();
+        fingerprints = new HashMap<>();
+    }
+
+    public SourceCodeElements(ArtifactsCollection codeCollection) {
+        this(codeCollection, null);
+    }
+
+    /**
+     * @param cache cache of the elements of files parsed before, or null to parse every file
+     */
+    public SourceCodeElements(ArtifactsCollection codeCollection, PreprocessingCache cache) {
+        this(codeCollection, cache, null);
+    }
+
+    /**
+     * @param registry registry the ASTs of the files are taken from, or null to parse them here
+     */
+    public SourceCodeElements(ArtifactsCollection codeCollection, PreprocessingCache cache, CompilationUnitRegistry registry) {
+        this(codeCollection, cache, registry, new ElementSymbolTable());
+    }
+
+    public SourceCodeElements(ArtifactsCollection codeCollection, PreprocessingCache cache, CompilationUnitRegistry registry,
+                              ElementSymbolTable symbols) {
+        this(symbols);
 
         for (String className : codeCollection.keySet()) {
             String contentInCode = codeCollection.get(className).text;
-            JavaElementsParser parser = new JavaElementsParser(contentInCode, this);
+            if (cache == null) {
+                JavaElementsParser parser = new JavaElementsParser(contentInCode, this, registry);
+            } else {
+                addAll(cache.parseJavaFile(contentInCode, registry));
+            }
+        }
+    }
+
+    /**
+     * Parses the files of every version on the pool, files of all versions are spread over the
+     * same workers so the versions are parsed concurrently. Each file is parsed into its own
+     * fragment, the fragments are merged in collection order afterwards.
+     *
+     * @param pool pool the files are parsed on, or null to parse them one after another
+     * @return the elements of every version, the same the constructor gives
+     */
+    public static SourceCodeElements[] parseVersions(ForkJoinPool pool, PreprocessingCache cache,
+                                                     CompilationUnitRegistry registry, ArtifactsCollection... versions) {
+        return parseVersions(pool, cache, registry, new ElementSymbolTable(), versions);
+    }
+
+    /**
+     * @param symbols table the elements of all versions are interned into
+     */
+    public static SourceCodeElements[] parseVersions(ForkJoinPool pool, PreprocessingCache cache, CompilationUnitRegistry registry,
+                                                     ElementSymbolTable symbols, ArtifactsCollection... versions) {
+        SourceCodeElements[] elements = new SourceCodeElements[versions.length];
+        if (pool == null) {
+            for (int v = 0; v < versions.length; v++) {
+                elements[v] = new SourceCodeElements(versions[v], cache, registry, symbols);
+            }
+            return elements;
+        }
+
+        int numFiles = 0;
+        for (ArtifactsCollection version : versions) {
+            numFiles += version.size();
+        }
+        String[] sources = new String[numFiles];
+        int n = 0;
+        for (ArtifactsCollection version : versions) {
+            for (Artifact artifact : version.values()) {
+                sources[n++] = artifact.text;
+            }
+        }
+
+        SourceCodeElements[] fragments = new SourceCodeElements[numFiles];
+        if (numFiles > 0) {
+            pool.invoke(new ParseTask(sources, fragments, cache, registry, symbols, 0, numFiles));
+        }
+
+        n = 0;
+        for (int v = 0; v < versions.length; v++) {
+            elements[v] = new SourceCodeElements(symbols);
+            for (int i = 0; i < versions[v].size(); i++) {
+                elements[v].addAll(fragments[n++]);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * @return the elements of a single java file
+     */
+    public static SourceCodeElements parse(String javaSource) {
+        return parse(javaSource, null);
+    }
+
+    public static SourceCodeElements parse(String javaSource, CompilationUnitRegistry registry) {
+        return parse(javaSource, registry, new ElementSymbolTable());
+    }
+
+    public static SourceCodeElements parse(String javaSource, CompilationUnitRegistry registry, ElementSymbolTable symbols) {
+        SourceCodeElements fragment = new SourceCodeElements(symbols);
+        new JavaElementsParser(javaSource, fragment, registry);
+        return fragment;
+    }
+
+    /**
+     * Adds the elements of another instance, in the same order as parsing its files into this one would.
+     */
+    public void addAll(SourceCodeElements fragment) {
+        for (String packageName : fragment.packagesList) {
+            addPackage(packageName);
+        }
+        for (String className : fragment.classesList) {
+            addClass(className);
+            addClassComments(className, fragment.getClassComments(className));
+        }
+        for (String methodName : fragment.methodsList) {
+            addMethod(methodName);
+            addMethodBody(methodName, fragment.getMethodBody(methodName));
+            addMethodComments(methodName, fragment.getMethodComments(methodName));
+            addMethodParameters(methodName, fragment.getMethodParameters(methodName));
+            addFingerprint(methodName, fragment.getFingerprint(methodName));
+        }
+        for (String fieldName : fragment.fieldsList) {
+            addField(fieldName);
+            addFingerprint(fieldName, fragment.getFingerprint(fieldName));
+        }
+        for (String signature : fragment.methodSignaturesList) {
+            addMethodSignature(signature);
+            addFingerprint(signature, fragment.getFingerprint(signature));
         }
     }
 
     public void addPackage(String packageName) {
-        getPackagesList().add(packageName);
+        add(packageName, packageIds, packagesList);
     }
 
     public void addClass(String className) {
-        getClassesList().add(className);
+        add(className, classIds, classesList);
     }
 
     public void addMethod(String methodName) {
-        getMethodsList().add(methodName);
+        add(methodName, methodIds, methodsList);
     }
 
     public void addField(String fieldName) {
-        getFieldsList().add(fieldName);
+        add(fieldName, fieldIds, fieldsList);
+    }
+
+    public void addMethodSignature(String signature) {
+        add(signature, methodSignatureIds, methodSignaturesList);
+    }
+
+    private void add(String name, ElementIdSet ids, Set<String> names) {
+        int id = symbols.intern(name);
+        if (ids.add(id)) {
+            names.add(symbols.getName(id));
+        }
+    }
+
+    public ElementSymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public ElementIdSet getPackageIds() {
+        return packageIds;
+    }
+
+    public ElementIdSet getClassIds() {
+        return classIds;
+    }
+
+    public ElementIdSet getMethodIds() {
+        return methodIds;
+    }
+
+    public ElementIdSet getFieldIds() {
+        return fieldIds;
+    }
+
+    public ElementIdSet getMethodSignatureIds() {
+        return methodSignatureIds;
     }
 
     public Set<String> getPackagesList() {
@@ -72,6 +267,22 @@ public class SourceCodeElements {
         return fieldsList;
     }
 
+    /**
+     * @return signatures like package.Class.method(int,String), the bodies, comments and
+     * parameters are kept per method name with all its overloads joined
+     */
+    public Set<String> getMethodSignaturesList() {
+        return methodSignaturesList;
+    }
+
+    /**
+     * @return the method name of a signature, the key of the method in getMethodsList()
+     */
+    public static String getMethodName(String signature) {
+        int parenthesis = signature.indexOf('(');
+        return parenthesis < 0 ? signature : signature.substring(0, parenthesis);
+    }
+
     public void addClassComments(String className, String comments) {
         classComments.put(className, comments);
     }
@@ -103,4 +314,23 @@ public class SourceCodeElements {
     public String getClassComments(String className) {
         return classComments.get(className);
     }
+
+    public void addFingerprint(String element, String fingerprint) {
+        fingerprints.put(element, fingerprint);
+    }
+
+    /**
+     * @return the fingerprint of a method or field, null if none was recorded
+     */
+    public String getFingerprint(String element) {
+        return fingerprints.get(element);
+    }
+
+    /**
+     * Hash of a piece of code with every whitespace run collapsed to one space, code that only
+     * differs in layout gets the same fingerprint.
+     */
+    public static String fingerprint(String code) {
+        return ContentHash.sha1(code.replaceAll("\\s+", " ").trim());
+    }
 }
@@ -21,10 +21,10 @@ public class ChangeRegionAlgorithm {
         CallRelationGraph callGraphForChangedPart = new CallRelationGraph(relationInfoForChangedPart);
         double thresholdForInitialRegion = 0.35;
 //        RelationInfo oldRelationInfo = new RelationInfo(newVersionJarPath,false);
-        RelationInfo oldRelationInfo = new RelationInfo(codeElementsComparer.getOldVersionCodeDirPath(),false);
+        RelationInfo oldRelationInfo = new RelationInfo(codeElementsComparer.getOldVersionCallRelations(), false);
         oldRelationInfo.setPruning(thresholdForInitialRegion);
 //        RelationInfo newRelationInfo = new RelationInfo(oldVersionJarPath,false);
-        RelationInfo newRelationInfo = new RelationInfo(codeElementsComparer.getNewVersionCodeDirPath(),false);
+        RelationInfo newRelationInfo = new RelationInfo(codeElementsComparer.getNewVersionCallRelations(), false);
         newRelationInfo.setPruning(thresholdForInitialRegion);
 
         CallRelationGraph oldCallGraph = new CallRelationGraph(oldRelationInfo);
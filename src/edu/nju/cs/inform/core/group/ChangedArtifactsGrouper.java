@@ -318,7 +318,8 @@ public class ChangedArtifactsGrouper {
                     singleMethod = s;
                 }
 
-                if (changedArtifacts.getAddedArtifactList().contains(singleMethod) || changedArtifacts.getRemovedArtifactList().contains(singleMethod)) {
+                if (changedArtifacts.getAddedArtifactList().contains(singleMethod) || changedArtifacts.getRemovedArtifactList().contains(singleMethod)
+                        || changedArtifacts.isOverloadChangedMethod(singleMethod)) {
                     mergeSingleMethodIntoOneExistedRegion(singleMethod, changedArtifactsGroup);
                 } else {
                     // ignore method that only changed in method body
@@ -335,7 +336,10 @@ public class ChangedArtifactsGrouper {
             HashSet<String> region = changedArtifactsGroup.get(i);
 
             for (String changedMethod : changedArtifacts.getModifiedArtifactList()) {
-                region.remove(changedMethod);
+                // a method that gained or lost an overload changed more than its body
+                if (!changedArtifacts.isOverloadChangedMethod(changedMethod)) {
+                    region.remove(changedMethod);
+                }
             }
         }
     }
@@ -392,7 +396,8 @@ public class ChangedArtifactsGrouper {
             HashSet<String> r = (HashSet<String>) it.next();
             boolean isAllMethodChangesAreModified = true;
             for (String m : r) {
-                if (changedArtifacts.getAddedArtifactList().contains(m) || changedArtifacts.getRemovedArtifactList().contains(m)) {
+                if (changedArtifacts.getAddedArtifactList().contains(m) || changedArtifacts.getRemovedArtifactList().contains(m)
+                        || changedArtifacts.isOverloadChangedMethod(m)) {
                     isAllMethodChangesAreModified = false;
                 }
             }
@@ -0,0 +1,40 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+
+/**
+ * Okapi BM25, the requirements are the document collection and each change description is a query.
+ *
+ * idf(t) = log(1 + (N - df + 0.5) / (df + 0.5)) stays positive for terms found in most documents.
+ */
+public class BM25 extends InvertedIndexModel {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Override
+    protected double[] ComputeDocumentWeights(SparseTermDocumentMatrix targets) {
+        int numDocs = targets.NumDocs();
+        int[] df = targets.getDocumentFrequencies();
+
+        double[] lengths = new double[numDocs];
+        double averageLength = 0.0;
+        for (int j = 0; j < numDocs; j++) {
+            lengths[j] = targets.getDocumentLength(j);
+            averageLength += lengths[j];
+        }
+        averageLength = numDocs == 0 ? 0.0 : averageLength / numDocs;
+
+        double[] weights = new double[targets.NumNonZeros()];
+        for (int j = 0; j < numDocs; j++) {
+            double norm = K1 * (1 - B + B * lengths[j] / averageLength);
+            for (int k = targets.getRowStart(j); k < targets.getRowEnd(j); k++) {
+                int n = df[targets.getTermIdAt(k)];
+                double idf = Math.log(1 + (numDocs - n + 0.5) / (n + 0.5));
+                double tf = targets.getValueAt(k);
+                weights[k] = idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+        return weights;
+    }
+}
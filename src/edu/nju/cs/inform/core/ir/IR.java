@@ -2,6 +2,9 @@ package edu.nju.cs.inform.core.ir;
 
 import edu.nju.cs.inform.core.type.ArtifactsCollection;
 import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import edu.nju.cs.inform.core.type.TopKSelector;
+
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by niejia on 15/2/23.
@@ -9,11 +12,23 @@ import edu.nju.cs.inform.core.type.SimilarityMatrix;
 public class IR {
 
     public static SimilarityMatrix compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, String modelType) {
+        return compute(sourceCollection, targetCollection, modelType, (ForkJoinPool) null);
+    }
+
+    /**
+     * @param pool pool used by a ParallelIRModel to score source artifacts concurrently,
+     *             models without parallel support and a null pool run sequentially
+     */
+    public static SimilarityMatrix compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, String modelType, ForkJoinPool pool) {
         SimilarityMatrix similarityMatrix = null;
         try {
-            Class modelTypeClass = Class.forName(modelType);
+            Class<?> modelTypeClass = Class.forName(modelType);
             IRModel irModel = (IRModel) modelTypeClass.newInstance();
-            similarityMatrix = irModel.Compute(sourceCollection, targetCollection);
+            if (pool != null && irModel instanceof ParallelIRModel) {
+                similarityMatrix = ((ParallelIRModel) irModel).Compute(sourceCollection, targetCollection, pool);
+            } else {
+                similarityMatrix = irModel.Compute(sourceCollection, targetCollection);
+            }
 
             return similarityMatrix;
 
@@ -27,4 +42,100 @@ public class IR {
         }
         return similarityMatrix;
     }
+
+    /**
+     * Reports every score of the model to the listener. Models without streaming support
+     * compute their SimilarityMatrix first and replay it.
+     */
+    public static void compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, String modelType, ScoreListener listener) {
+        try {
+            Class<?> modelTypeClass = Class.forName(modelType);
+            IRModel irModel = (IRModel) modelTypeClass.newInstance();
+            if (irModel instanceof StreamingIRModel) {
+                ((StreamingIRModel) irModel).Compute(sourceCollection, targetCollection, listener);
+            } else {
+                SimilarityMatrix similarityMatrix = irModel.Compute(sourceCollection, targetCollection);
+                int sourceIndex = 0;
+                for (String source : sourceCollection.keySet()) {
+                    int targetIndex = 0;
+                    for (String target : targetCollection.keySet()) {
+                        listener.onScore(sourceIndex, targetIndex, similarityMatrix.getScoreForLink(source, target));
+                        targetIndex++;
+                    }
+                    sourceIndex++;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            System.out.println("No such IR model exists");
+            e.printStackTrace();
+        } catch (InstantiationException e) {
+            e.printStackTrace();
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reports the topK best targets of every source, best score first. A TopKIRModel skips the
+     * targets that cannot make it, other models are scored in full and then cut.
+     */
+    public static void compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, String modelType,
+                               int topK, ScoreListener listener) {
+        try {
+            Class<?> modelTypeClass = Class.forName(modelType);
+            IRModel irModel = (IRModel) modelTypeClass.newInstance();
+            if (irModel instanceof TopKIRModel) {
+                ((TopKIRModel) irModel).Compute(sourceCollection, targetCollection, topK, listener);
+                return;
+            }
+        } catch (ClassNotFoundException e) {
+            System.out.println("No such IR model exists");
+            e.printStackTrace();
+            return;
+        } catch (InstantiationException e) {
+            e.printStackTrace();
+            return;
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        PerSourceTopK perSourceTopK = new PerSourceTopK(topK, listener);
+        compute(sourceCollection, targetCollection, modelType, perSourceTopK);
+        perSourceTopK.flush();
+    }
+
+    /**
+     * Forwards only the topK scores of every source, scores must arrive grouped by source.
+     */
+    private static class PerSourceTopK implements ScoreListener {
+        private final ScoreListener listener;
+        private final TopKSelector selector;
+        private final int[] targets;
+        private final double[] scores;
+        private int currentSource = -1;
+
+        PerSourceTopK(int topK, ScoreListener listener) {
+            this.listener = listener;
+            this.selector = new TopKSelector(topK);
+            this.targets = new int[topK];
+            this.scores = new double[topK];
+        }
+
+        @Override
+        public void onScore(int sourceIndex, int targetIndex, double score) {
+            if (sourceIndex != currentSource) {
+                flush();
+                currentSource = sourceIndex;
+            }
+            selector.offer(targetIndex, score);
+        }
+
+        void flush() {
+            int count = selector.drainSorted(targets, scores);
+            for (int n = 0; n < count; n++) {
+                listener.onScore(currentSource, targets[n], scores[n]);
+            }
+        }
+    }
 }
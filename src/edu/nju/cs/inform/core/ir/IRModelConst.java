@@ -6,4 +6,28 @@ package edu.nju.cs.inform.core.ir;
 public class IRModelConst {
     public static final String VSM = "edu.nju.cs.inform.core.ir.VSM";
     public static final String JSD = "edu.nju.cs.inform.core.ir.JSD";
+    public static final String BM25 = "edu.nju.cs.inform.core.ir.BM25";
+    public static final String QueryLikelihood = "edu.nju.cs.inform.core.ir.QueryLikelihood";
+    public static final String LSI = "edu.nju.cs.inform.core.ir.LSI";
+
+    /**
+     * @param name short model name, case insensitive: vsm, jsd, bm25, ql or lsi
+     * @return the model class name, or null for an unknown name
+     */
+    public static String getModelType(String name) {
+        switch (name.toLowerCase()) {
+            case "vsm":
+                return VSM;
+            case "jsd":
+                return JSD;
+            case "bm25":
+                return BM25;
+            case "ql":
+                return QueryLikelihood;
+            case "lsi":
+                return LSI;
+            default:
+                return null;
+        }
+    }
 }
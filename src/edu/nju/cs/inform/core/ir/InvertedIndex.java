@@ -0,0 +1,294 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+import edu.nju.cs.inform.core.type.TopKSelector;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Term to document postings over a subset of the rows of a SparseTermDocumentMatrix.
+ *
+ * Indexed documents are numbered 0..NumDocs()-1 in the order they were given. Scoring a
+ * query row only walks the postings of the query's own terms, so the cost is proportional
+ * to the number of shared (term, document) pairs rather than to every document and term.
+ *
+ * Documents may carry a prior, a score every document gets per unit of query weight whatever
+ * terms it shares with the query. Priors are never positive, so the term weights stay upper
+ * bounds of the scores.
+ */
+public class InvertedIndex {
+
+    private int[] postingPointers;
+    private int[] postingDocs;
+    private double[] postingWeights;
+    private double[] maxWeights;
+    private double[] squaredNorms;
+    private double[] priors;
+    private int[] docsByPrior;
+    private double maxPrior;
+
+    /**
+     * @param matrix  matrix holding the documents to index
+     * @param weights term weights aligned with the CSR positions of the matrix
+     * @param rows    matrix rows to index, their position in this array becomes the indexed doc id
+     */
+    public InvertedIndex(SparseTermDocumentMatrix matrix, double[] weights, int[] rows) {
+        this(matrix, weights, null, rows);
+    }
+
+    /**
+     * @param matrix  matrix holding the documents to index
+     * @param weights term weights aligned with the CSR positions of the matrix
+     * @param priors  prior of every matrix row, never positive, or null for none
+     * @param rows    matrix rows to index, their position in this array becomes the indexed doc id
+     */
+    public InvertedIndex(SparseTermDocumentMatrix matrix, double[] weights, double[] priors, int[] rows) {
+        int numTerms = matrix.NumTerms();
+        postingPointers = new int[numTerms + 1];
+        squaredNorms = new double[rows.length];
+
+        // count postings per term, then turn the counts into offsets
+        for (int row : rows) {
+            for (int k = matrix.getRowStart(row); k < matrix.getRowEnd(row); k++) {
+                postingPointers[matrix.getTermIdAt(k) + 1]++;
+            }
+        }
+        for (int t = 0; t < numTerms; t++) {
+            postingPointers[t + 1] += postingPointers[t];
+        }
+
+        postingDocs = new int[postingPointers[numTerms]];
+        postingWeights = new double[postingPointers[numTerms]];
+        maxWeights = new double[numTerms];
+        int[] next = Arrays.copyOf(postingPointers, numTerms);
+
+        for (int d = 0; d < rows.length; d++) {
+            double squared = 0.0;
+            for (int k = matrix.getRowStart(rows[d]); k < matrix.getRowEnd(rows[d]); k++) {
+                int position = next[matrix.getTermIdAt(k)]++;
+                postingDocs[position] = d;
+                postingWeights[position] = weights[k];
+                maxWeights[matrix.getTermIdAt(k)] = Math.max(maxWeights[matrix.getTermIdAt(k)], weights[k]);
+                squared += weights[k] * weights[k];
+            }
+            squaredNorms[d] = squared;
+        }
+
+        if (priors != null) {
+            indexPriors(priors, rows);
+        }
+    }
+
+    /**
+     * Keeps the priors of the indexed rows and their documents by descending prior, ties in doc order
+     */
+    private void indexPriors(double[] rowPriors, int[] rows) {
+        priors = new double[rows.length];
+        Integer[] order = new Integer[rows.length];
+        for (int d = 0; d < rows.length; d++) {
+            if (rowPriors[rows[d]] > 0.0) {
+                throw new IllegalArgumentException("positive prior for row " + rows[d]);
+            }
+            priors[d] = rowPriors[rows[d]];
+            order[d] = d;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int byPrior = Double.compare(priors[o2], priors[o1]);
+                return byPrior != 0 ? byPrior : o1 - o2;
+            }
+        });
+        docsByPrior = new int[rows.length];
+        for (int n = 0; n < rows.length; n++) {
+            docsByPrior[n] = order[n];
+        }
+        maxPrior = rows.length == 0 ? 0.0 : priors[docsByPrior[0]];
+    }
+
+    public int NumDocs() {
+        return squaredNorms.length;
+    }
+
+    public double getSquaredNorm(int doc) {
+        return squaredNorms[doc];
+    }
+
+    /**
+     * @return the highest weight of the term over the indexed documents, 0 for unindexed terms
+     */
+    public double getMaxWeight(int term) {
+        return term < maxWeights.length ? maxWeights[term] : 0.0;
+    }
+
+    /**
+     * Adds the dot product of a query row with every indexed document into accumulators, plus the
+     * prior of the document times getPriorWeight() of the query when the index has priors.
+     * Query terms are visited in ascending term id order.
+     *
+     * @param query        matrix holding the query row, built on the same vocabulary as the index
+     * @param queryWeights term weights aligned with the CSR positions of the query matrix
+     * @param row          query row
+     * @param accumulators one slot per indexed document, expected to be zeroed by the caller
+     */
+    public void accumulate(SparseTermDocumentMatrix query, double[] queryWeights, int row, double[] accumulators) {
+        for (int k = query.getRowStart(row); k < query.getRowEnd(row); k++) {
+            int term = query.getTermIdAt(k);
+            if (term + 1 >= postingPointers.length) {
+                continue;
+            }
+            double weight = queryWeights[k];
+            for (int p = postingPointers[term]; p < postingPointers[term + 1]; p++) {
+                accumulators[postingDocs[p]] += weight * postingWeights[p];
+            }
+        }
+        if (priors != null) {
+            double priorWeight = getPriorWeight(query, queryWeights, row);
+            for (int d = 0; d < priors.length; d++) {
+                accumulators[d] += priorWeight * priors[d];
+            }
+        }
+    }
+
+    /**
+     * @return sum of the weights of the query terms known to the index, the factor of the priors
+     */
+    public double getPriorWeight(SparseTermDocumentMatrix query, double[] queryWeights, int row) {
+        double priorWeight = 0.0;
+        for (int k = query.getRowStart(row); k < query.getRowEnd(row); k++) {
+            if (query.getTermIdAt(k) + 1 < postingPointers.length) {
+                priorWeight += queryWeights[k];
+            }
+        }
+        return priorWeight;
+    }
+
+    /**
+     * Offers the best scoring documents of a query row to a selector, skipping with WAND every
+     * document whose score upper bound cannot enter the selector any more.
+     *
+     * Scores are the same as accumulate() gives, for non-negative weights only. Documents
+     * that share no term with the query are only offered when the index has priors, by
+     * descending prior until they cannot enter the selector any more.
+     */
+    public void search(SparseTermDocumentMatrix query, double[] queryWeights, int row, TopKSelector selector) {
+        int numCursors = 0;
+        int[] positions = new int[query.getRowEnd(row) - query.getRowStart(row)];
+        int[] ends = new int[positions.length];
+        double[] cursorWeights = new double[positions.length];
+        double[] bounds = new double[positions.length];
+
+        // cursors stay in query term order, so a document is scored in the same order as accumulate()
+        for (int k = query.getRowStart(row); k < query.getRowEnd(row); k++) {
+            int term = query.getTermIdAt(k);
+            if (term + 1 >= postingPointers.length || postingPointers[term] == postingPointers[term + 1]) {
+                continue;
+            }
+            positions[numCursors] = postingPointers[term];
+            ends[numCursors] = postingPointers[term + 1];
+            cursorWeights[numCursors] = queryWeights[k];
+            bounds[numCursors] = queryWeights[k] * maxWeights[term];
+            numCursors++;
+        }
+
+        int[] order = new int[numCursors];
+        for (int c = 0; c < numCursors; c++) {
+            order[c] = c;
+        }
+        double priorWeight = priors == null ? 0.0 : getPriorWeight(query, queryWeights, row);
+        BitSet offered = priors == null ? null : new BitSet(priors.length);
+
+        while (true) {
+            sortByCurrentDoc(order, positions, ends);
+
+            // pivot: first cursor whose prefix of upper bounds could still beat the selector
+            int pivot = -1;
+            double bound = priorWeight * maxPrior;
+            for (int p = 0; p < numCursors; p++) {
+                int c = order[p];
+                if (positions[c] >= ends[c]) {
+                    break;
+                }
+                bound += bounds[c];
+                if (canEnter(selector, bound)) {
+                    pivot = p;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                break;
+            }
+
+            int pivotDoc = postingDocs[positions[order[pivot]]];
+            if (postingDocs[positions[order[0]]] == pivotDoc) {
+                double score = 0.0;
+                for (int c = 0; c < numCursors; c++) {
+                    if (positions[c] < ends[c] && postingDocs[positions[c]] == pivotDoc) {
+                        score += cursorWeights[c] * postingWeights[positions[c]];
+                        positions[c]++;
+                    }
+                }
+                if (priors != null) {
+                    score += priorWeight * priors[pivotDoc];
+                    offered.set(pivotDoc);
+                }
+                selector.offer(pivotDoc, score);
+            } else {
+                for (int p = 0; p < pivot; p++) {
+                    int c = order[p];
+                    positions[c] = seek(positions[c], ends[c], pivotDoc);
+                }
+            }
+        }
+
+        if (priors == null) {
+            return;
+        }
+        // documents left out above could not enter with their bound, their prior alone is lower still
+        for (int n = 0; n < docsByPrior.length; n++) {
+            int doc = docsByPrior[n];
+            double score = priorWeight * priors[doc];
+            if (selector.isFull() && score < selector.getMinScore()) {
+                return;
+            }
+            if (!offered.get(doc)) {
+                selector.offer(doc, score);
+            }
+        }
+    }
+
+    /**
+     * Documents arrive in ascending order, so a document scoring exactly the selector's minimum
+     * would lose the tie. The small relative slack covers rounding in the summed bounds.
+     */
+    private static boolean canEnter(TopKSelector selector, double bound) {
+        return !selector.isFull() || bound + Math.abs(bound) * 1e-12 > selector.getMinScore();
+    }
+
+    private void sortByCurrentDoc(int[] order, int[] positions, int[] ends) {
+        for (int i = 1; i < order.length; i++) {
+            int c = order[i];
+            int doc = currentDoc(positions[c], ends[c]);
+            int j = i - 1;
+            while (j >= 0 && currentDoc(positions[order[j]], ends[order[j]]) > doc) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = c;
+        }
+    }
+
+    private int currentDoc(int position, int end) {
+        return position < end ? postingDocs[position] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return first position in [from, end) whose document is not below doc, or end
+     */
+    private int seek(int from, int end, int doc) {
+        int position = Arrays.binarySearch(postingDocs, from, end, doc);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,118 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Base of the models whose score is a sum over the shared terms of query count x document
+ * term weight, plus query length x document prior for the models with priors. The targets
+ * are the documents, they are put in an InvertedIndex and every source is a query over it.
+ */
+abstract class InvertedIndexModel implements ParallelIRModel, StreamingIRModel, TopKIRModel {
+
+    /**
+     * @return weight of every non-zero entry of the target matrix, aligned with its CSR positions,
+     * never negative so that the index can be searched with WAND
+     */
+    protected abstract double[] ComputeDocumentWeights(SparseTermDocumentMatrix targets);
+
+    /**
+     * @return score of every target row per query term, whatever terms they share, never positive
+     * so that the document weights stay upper bounds for WAND; null for models without priors
+     */
+    protected double[] ComputeDocumentPriors(SparseTermDocumentMatrix targets) {
+        return null;
+    }
+
+    public SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target) {
+        return Compute(source, target, (ForkJoinPool) null);
+    }
+
+    public SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target, ForkJoinPool pool) {
+        final SparseTermDocumentMatrix targets = new SparseTermDocumentMatrix(target);
+        final SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(source, targets.getVocabulary());
+        final double[] queryWeights = ComputeQueryWeights(queries);
+        final InvertedIndex index = new InvertedIndex(targets, ComputeDocumentWeights(targets), ComputeDocumentPriors(targets), getAllRows(targets));
+
+        LinksList[] rows = SourceRowsTask.scoreRows(queries.NumDocs(), new SourceRowsTask.RowScorer() {
+            @Override
+            public LinksList score(int row) {
+                double[] scores = new double[index.NumDocs()];
+                index.accumulate(queries, queryWeights, row, scores);
+
+                LinksList links = new LinksList();
+                for (int j = 0; j < scores.length; j++) {
+                    links.add(new SingleLink(queries.getDocumentName(row), targets.getDocumentName(j), scores[j]));
+                }
+                Collections.sort(links, Collections.reverseOrder());
+                return links;
+            }
+        }, pool);
+
+        SimilarityMatrix sims = new SimilarityMatrix();
+        for (LinksList links : rows) {
+            for (SingleLink link : links) {
+                sims.addLink(link.getSourceArtifactId(), link.getTargetArtifactId(), link.getScore());
+            }
+        }
+        return sims;
+    }
+
+    public void Compute(ArtifactsCollection source, ArtifactsCollection target, ScoreListener listener) {
+        SparseTermDocumentMatrix targets = new SparseTermDocumentMatrix(target);
+        SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(source, targets.getVocabulary());
+        double[] queryWeights = ComputeQueryWeights(queries);
+        InvertedIndex index = new InvertedIndex(targets, ComputeDocumentWeights(targets), ComputeDocumentPriors(targets), getAllRows(targets));
+
+        double[] scores = new double[index.NumDocs()];
+        for (int i = 0; i < queries.NumDocs(); i++) {
+            Arrays.fill(scores, 0.0);
+            index.accumulate(queries, queryWeights, i, scores);
+            for (int j = 0; j < scores.length; j++) {
+                listener.onScore(i, j, scores[j]);
+            }
+        }
+    }
+
+    public void Compute(ArtifactsCollection source, ArtifactsCollection target, int topK, ScoreListener listener) {
+        SparseTermDocumentMatrix targets = new SparseTermDocumentMatrix(target);
+        SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(source, targets.getVocabulary());
+        double[] queryWeights = ComputeQueryWeights(queries);
+        InvertedIndex index = new InvertedIndex(targets, ComputeDocumentWeights(targets), ComputeDocumentPriors(targets), getAllRows(targets));
+
+        TopKSelector selector = new TopKSelector(topK);
+        int[] docs = new int[topK];
+        double[] scores = new double[topK];
+        for (int i = 0; i < queries.NumDocs(); i++) {
+            index.search(queries, queryWeights, i, selector);
+            int count = selector.drainSorted(docs, scores);
+            for (int n = 0; n < count; n++) {
+                listener.onScore(i, docs[n], scores[n]);
+            }
+        }
+    }
+
+    /**
+     * Query terms are weighted by their count in the source
+     */
+    private double[] ComputeQueryWeights(SparseTermDocumentMatrix queries) {
+        double[] weights = new double[queries.NumNonZeros()];
+        for (int k = 0; k < weights.length; k++) {
+            weights[k] = queries.getValueAt(k);
+        }
+        return weights;
+    }
+
+    private int[] getAllRows(SparseTermDocumentMatrix matrix) {
+        int[] rows = new int[matrix.NumDocs()];
+        for (int j = 0; j < rows.length; j++) {
+            rows[j] = j;
+        }
+        return rows;
+    }
+}
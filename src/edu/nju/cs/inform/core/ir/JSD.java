@@ -3,32 +3,51 @@ package edu.nju.cs.inform.core.ir;
 import edu.nju.cs.inform.core.type.*;
 
 import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by niejia on 15/2/23.
  */
 
-public class JSD implements IRModel {
+public class JSD implements ParallelIRModel, StreamingIRModel {
 
     @Override
     public SimilarityMatrix Compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection) {
-        return Compute(sourceCollection, targetCollection);
+        return Compute(sourceCollection, targetCollection, (ForkJoinPool) null);
     }
 
-    private SimilarityMatrix Compute(TermDocumentMatrix source, TermDocumentMatrix target) {
-        List<TermDocumentMatrix> matrices = TermDocumentMatrix.Equalize(source, target);
-        SimilarityMatrix sims = new SimilarityMatrix();
+    @Override
+    public SimilarityMatrix Compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, ForkJoinPool pool) {
+        SparseTermDocumentMatrix source = new SparseTermDocumentMatrix(sourceCollection);
+        SparseTermDocumentMatrix target = new SparseTermDocumentMatrix(targetCollection, source.getVocabulary());
+        return Compute(new Distributions(source), new Distributions(target), pool);
+    }
 
-        for (int i = 0; i < matrices.get(0).NumDocs(); i++) {
-            LinksList list = new LinksList();
-            for (int j = 0; j < matrices.get(1).NumDocs(); j++) {
-                list.add(new SingleLink(matrices.get(0).getDocumentName(i), matrices.get(1).getDocumentName(j),
-                        documentSimilarity(matrices.get(0).getDocument(i), matrices.get(1).getDocument(j))));
+    @Override
+    public void Compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, ScoreListener listener) {
+        SparseTermDocumentMatrix source = new SparseTermDocumentMatrix(sourceCollection);
+        SparseTermDocumentMatrix target = new SparseTermDocumentMatrix(targetCollection, source.getVocabulary());
+        Distributions sourceDistributions = new Distributions(source);
+        Distributions targetDistributions = new Distributions(target);
+
+        for (int i = 0; i < source.NumDocs(); i++) {
+            for (int j = 0; j < target.NumDocs(); j++) {
+                listener.onScore(i, j, documentSimilarity(sourceDistributions, i, targetDistributions, j));
             }
+        }
+    }
 
-            Collections.sort(list, Collections.reverseOrder());
+    private SimilarityMatrix Compute(final Distributions source, final Distributions target, ForkJoinPool pool) {
+        SimilarityMatrix sims = new SimilarityMatrix();
+
+        LinksList[] rows = SourceRowsTask.scoreRows(source.matrix.NumDocs(), new SourceRowsTask.RowScorer() {
+            @Override
+            public LinksList score(int row) {
+                return Compute(source, row, target);
+            }
+        }, pool);
 
+        for (LinksList list : rows) {
             for (SingleLink link : list) {
                 sims.addLink(link.getSourceArtifactId(), link.getTargetArtifactId(), link.getScore());
             }
@@ -36,68 +55,81 @@ public class JSD implements IRModel {
         return sims;
     }
 
-    private double documentSimilarity(double[] document1, double[] document2) {
-        double similarity;
-
-//        1. Transform documents in two probability distributions
-        double[] distribution1 = new double[document1.length];
-        double[] distribution2 = new double[document2.length];
-
-        double sum1 = 0;
-        double sum2 = 0;
-
-        for (int i = 0; i < document1.length; i++) {
-            sum1 = sum1 + document1[i];
-            sum2 = sum2 + document2[i];
+    private LinksList Compute(Distributions source, int i, Distributions target) {
+        LinksList list = new LinksList();
+        for (int j = 0; j < target.matrix.NumDocs(); j++) {
+            list.add(new SingleLink(source.matrix.getDocumentName(i), target.matrix.getDocumentName(j),
+                    documentSimilarity(source, i, target, j)));
         }
 
-        for (int i = 0; i < document1.length; i++) {
-            distribution1[i] = document1[i] / sum1;
-            distribution2[i] = document2[i] / sum2;
-        }
-
-//        2. Compute Jensen-Shannon divergence between probability distribution
-        double[] temp;
-        temp = sumDocument(distribution1, distribution2);
-        temp = mulDocument(0.5, temp);
-        similarity = entropy(temp);
-        similarity = similarity - (entropy(distribution1) + entropy(distribution2)) / 2;
-
-//        3. Compute Jensen Shannon similarity
-        similarity = 1 - similarity;
-        return similarity;
+        Collections.sort(list, Collections.reverseOrder());
+        return list;
     }
 
-
-
-    private double entropy(double[] docDistrib) {
-        int i;
-        double entropia = 0;
-        for (i = 0; i < docDistrib.length; i++) {
-            if (docDistrib[i] > 0) {
-                entropia = entropia - docDistrib[i] * (Math.log(docDistrib[i]) / Math.log(2.0));
-//                entropia = entropia - docDistrib[i] * (Math.log(docDistrib[i]));
+    /**
+     * 1 - JS(P1, P2) with base 2 logarithms.
+     *
+     * A term found in only one document contributes p/2 to the divergence, and p log p of that
+     * term cancels out against the document's own entropy. So the divergence is
+     * 1 - sum over the shared terms of (p1 + p2)/2 + m log m - (p1 log p1 + p2 log p2)/2, with
+     * m = (p1 + p2)/2, and only the intersection of the two sorted rows is visited.
+     */
+    private double documentSimilarity(Distributions source, int doc1, Distributions target, int doc2) {
+        SparseTermDocumentMatrix matrix1 = source.matrix;
+        SparseTermDocumentMatrix matrix2 = target.matrix;
+
+        int k1 = matrix1.getRowStart(doc1);
+        int end1 = matrix1.getRowEnd(doc1);
+        int k2 = matrix2.getRowStart(doc2);
+        int end2 = matrix2.getRowEnd(doc2);
+
+        double similarity = 0;
+        while (k1 < end1 && k2 < end2) {
+            int term1 = matrix1.getTermIdAt(k1);
+            int term2 = matrix2.getTermIdAt(k2);
+            if (term1 < term2) {
+                k1++;
+            } else if (term2 < term1) {
+                k2++;
+            } else {
+                double p1 = source.probabilities[k1];
+                double p2 = target.probabilities[k2];
+                double mean = 0.5 * (p1 + p2);
+                similarity += mean - entropy(mean) + 0.5 * (source.entropies[k1] + target.entropies[k2]);
+                k1++;
+                k2++;
             }
         }
-        return entropia;
+        return similarity;
     }
 
-    private double[] sumDocument(double[] document1, double[] document2) {
-        double[] sum = new double[document1.length];
-
-        for (int i = 0; i < sum.length; i++) {
-            sum[i] = document1[i] + document2[i];
+    private static double entropy(double probability) {
+        if (probability > 0) {
+            return -probability * (Math.log(probability) / Math.log(2.0));
         }
-        return sum;
+        return 0;
     }
 
-    private double[] mulDocument(double pScalar, double[] pVector) {
-        double[] mul = new double[pVector.length];
-        for (int i = 0; i < mul.length; i++) {
-            mul[i] = pScalar * pVector[i];
+    /**
+     * Term probabilities of every document and their -p log p, aligned with the CSR positions of the matrix
+     */
+    private static class Distributions {
+        final SparseTermDocumentMatrix matrix;
+        final double[] probabilities;
+        final double[] entropies;
+
+        Distributions(SparseTermDocumentMatrix matrix) {
+            this.matrix = matrix;
+            this.probabilities = new double[matrix.NumNonZeros()];
+            this.entropies = new double[matrix.NumNonZeros()];
+
+            for (int i = 0; i < matrix.NumDocs(); i++) {
+                double sum = matrix.getDocumentLength(i);
+                for (int k = matrix.getRowStart(i); k < matrix.getRowEnd(i); k++) {
+                    probabilities[k] = matrix.getValueAt(k) / sum;
+                    entropies[k] = entropy(probabilities[k]);
+                }
+            }
         }
-        return mul;
     }
-
-
 }
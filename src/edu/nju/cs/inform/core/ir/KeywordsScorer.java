@@ -0,0 +1,65 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Document frequencies of one code version, computed once and shared by every VSM_Keywords
+ * built against that codebase. Scoring a change collection then only counts the change
+ * documents on top of the codebase statistics.
+ */
+public class KeywordsScorer {
+
+    private TermVocabulary codeVocabulary;
+    private int[] codeDocumentFrequencies;
+    private Set<String> codeIds;
+
+    public KeywordsScorer(ArtifactsCollection codeCollection) {
+        SparseTermDocumentMatrix codeMatrix = new SparseTermDocumentMatrix(codeCollection);
+        this.codeVocabulary = codeMatrix.getVocabulary();
+        this.codeDocumentFrequencies = codeMatrix.getDocumentFrequencies();
+        this.codeIds = new HashSet<>(codeCollection.keySet());
+    }
+
+    public VSM_Keywords score(ArtifactsCollection changeCollection) {
+        return new VSM_Keywords(changeCollection, this);
+    }
+
+    /**
+     * IDF over the change and code documents together, indexed by the term ids of the change matrix.
+     * A change document whose id is also a code document is replaced by the code document, as
+     * putting both collections into one map would do.
+     */
+    double[] ComputeIDF(SparseTermDocumentMatrix changeMatrix) {
+        int[] df = new int[changeMatrix.NumTerms()];
+        int numDocs = codeIds.size();
+
+        for (int i = 0; i < changeMatrix.NumDocs(); i++) {
+            if (codeIds.contains(changeMatrix.getDocumentName(i))) {
+                continue;
+            }
+            numDocs++;
+            for (int k = changeMatrix.getRowStart(i); k < changeMatrix.getRowEnd(i); k++) {
+                df[changeMatrix.getTermIdAt(k)]++;
+            }
+        }
+
+        double[] idf = new double[df.length];
+        for (int t = 0; t < df.length; t++) {
+            int codeTerm = codeVocabulary.getTermId(changeMatrix.getTermName(t));
+            if (codeTerm >= 0) {
+                df[t] += codeDocumentFrequencies[codeTerm];
+            }
+            if (df[t] <= 0) {
+                idf[t] = 0.0;
+            } else {
+                idf[t] = Math.log(numDocs / (double) df[t]);
+            }
+        }
+        return idf;
+    }
+}
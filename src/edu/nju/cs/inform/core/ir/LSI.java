@@ -0,0 +1,295 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.*;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Latent semantic indexing. The TF-IDF weighted term-document matrix of the targets is reduced
+ * to rank RANK with a randomized truncated SVD, sources and targets are compared by cosine
+ * in that space.
+ *
+ * The basis of the last target corpus is kept with the ids and texts it was built from, so
+ * tracing new change descriptions against the same requirements only pays for folding them in.
+ * It is softly referenced and given up when memory runs low.
+ */
+public class LSI implements ParallelIRModel, StreamingIRModel {
+
+    private static final int RANK = 100;
+    private static final int OVERSAMPLING = 10;
+    private static final int POWER_ITERATIONS = 2;
+    private static final long SEED = 42L;
+
+    private static SoftReference<Basis> cachedBasis;
+
+    public SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target) {
+        return Compute(source, target, (ForkJoinPool) null);
+    }
+
+    public SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target, ForkJoinPool pool) {
+        final Basis basis = getBasis(target);
+        final SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(source);
+
+        LinksList[] rows = SourceRowsTask.scoreRows(queries.NumDocs(), new SourceRowsTask.RowScorer() {
+            @Override
+            public LinksList score(int row) {
+                double[] scores = basis.score(queries, row);
+                LinksList links = new LinksList();
+                for (int j = 0; j < scores.length; j++) {
+                    links.add(new SingleLink(queries.getDocumentName(row), basis.targets.getDocumentName(j), scores[j]));
+                }
+                Collections.sort(links, Collections.reverseOrder());
+                return links;
+            }
+        }, pool);
+
+        SimilarityMatrix sims = new SimilarityMatrix();
+        for (LinksList links : rows) {
+            for (SingleLink link : links) {
+                sims.addLink(link.getSourceArtifactId(), link.getTargetArtifactId(), link.getScore());
+            }
+        }
+        return sims;
+    }
+
+    public void Compute(ArtifactsCollection source, ArtifactsCollection target, ScoreListener listener) {
+        Basis basis = getBasis(target);
+        SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(source);
+
+        for (int i = 0; i < queries.NumDocs(); i++) {
+            double[] scores = basis.score(queries, i);
+            for (int j = 0; j < scores.length; j++) {
+                listener.onScore(i, j, scores[j]);
+            }
+        }
+    }
+
+    private static synchronized Basis getBasis(ArtifactsCollection target) {
+        Basis basis = cachedBasis == null ? null : cachedBasis.get();
+        if (basis == null || !basis.isBuiltFrom(target)) {
+            basis = new Basis(target);
+            cachedBasis = new SoftReference<>(basis);
+        }
+        return basis;
+    }
+
+    /**
+     * Rank reduced space of one target corpus: the left singular vectors of every term and the
+     * projection of every target document.
+     */
+    private static class Basis {
+        final String[] ids;
+        final String[] texts;
+        final SparseTermDocumentMatrix targets;
+        final double[] idf;
+        final int rank;
+        final double[][] termVectors;
+        final double[][] docVectors;
+        final double[] docNorms;
+
+        Basis(ArtifactsCollection target) {
+            this.ids = new String[target.size()];
+            this.texts = new String[target.size()];
+            int d = 0;
+            for (Artifact artifact : target.values()) {
+                ids[d] = artifact.id;
+                texts[d] = TokenizedArtifact.getText(artifact);
+                d++;
+            }
+            this.targets = new SparseTermDocumentMatrix(target);
+
+            int numTerms = targets.NumTerms();
+            int numDocs = targets.NumDocs();
+            int[] df = targets.getDocumentFrequencies();
+            idf = new double[numTerms];
+            for (int t = 0; t < numTerms; t++) {
+                idf[t] = df[t] == 0 ? 0.0 : Math.log(numDocs / (double) df[t]);
+            }
+            double[] weights = new double[targets.NumNonZeros()];
+            for (int j = 0; j < numDocs; j++) {
+                double length = targets.getDocumentLength(j);
+                for (int k = targets.getRowStart(j); k < targets.getRowEnd(j); k++) {
+                    weights[k] = targets.getValueAt(k) / length * idf[targets.getTermIdAt(k)];
+                }
+            }
+
+            // randomized range finder: Q spans the dominant column space of the terms x docs matrix A
+            int samples = Math.min(RANK + OVERSAMPLING, Math.min(numTerms, numDocs));
+            if (samples == 0) {
+                rank = 0;
+                termVectors = new double[numTerms][0];
+                docVectors = new double[numDocs][0];
+                docNorms = new double[numDocs];
+                return;
+            }
+            Random random = new Random(SEED);
+            double[][] omega = new double[numDocs][samples];
+            for (int j = 0; j < numDocs; j++) {
+                for (int c = 0; c < samples; c++) {
+                    omega[j][c] = random.nextGaussian();
+                }
+            }
+            double[][] q = orthonormalize(multiply(weights, omega, numTerms));
+            for (int n = 0; n < POWER_ITERATIONS; n++) {
+                q = orthonormalize(multiply(weights, orthonormalize(multiplyTransposed(weights, q, numDocs)), numTerms));
+            }
+
+            // SVD of the small matrix B = Q^T A, then A ~ (Q U_B) S V^T
+            double[][] b = transpose(multiplyTransposed(weights, q, numDocs));
+            SingularValueDecomposition svd = new SingularValueDecomposition(new Array2DRowRealMatrix(b, false));
+            RealMatrix u = new Array2DRowRealMatrix(q, false).multiply(svd.getU());
+            double[] singularValues = svd.getSingularValues();
+            RealMatrix v = svd.getV();
+
+            rank = Math.min(RANK, singularValues.length);
+            termVectors = new double[numTerms][rank];
+            for (int t = 0; t < numTerms; t++) {
+                for (int r = 0; r < rank; r++) {
+                    termVectors[t][r] = u.getEntry(t, r);
+                }
+            }
+            docVectors = new double[numDocs][rank];
+            docNorms = new double[numDocs];
+            for (int j = 0; j < numDocs; j++) {
+                for (int r = 0; r < rank; r++) {
+                    docVectors[j][r] = singularValues[r] * v.getEntry(j, r);
+                }
+                docNorms[j] = norm(docVectors[j]);
+            }
+        }
+
+        /**
+         * @return true if the corpus has the ids and texts of this basis, in the same order
+         */
+        boolean isBuiltFrom(ArtifactsCollection target) {
+            if (target.size() != ids.length) {
+                return false;
+            }
+            int n = 0;
+            for (Artifact artifact : target.values()) {
+                if (!ids[n].equals(artifact.id) || !texts[n].equals(TokenizedArtifact.getText(artifact))) {
+                    return false;
+                }
+                n++;
+            }
+            return true;
+        }
+
+        /**
+         * Folds a query row into the reduced space and returns its cosine with every target,
+         * query terms unknown to the targets are ignored.
+         */
+        double[] score(SparseTermDocumentMatrix queries, int row) {
+            double[] query = new double[rank];
+            double length = queries.getDocumentLength(row);
+            for (int k = queries.getRowStart(row); k < queries.getRowEnd(row); k++) {
+                int term = targets.getTermIndex(queries.getTermName(queries.getTermIdAt(k)));
+                if (term < 0) {
+                    continue;
+                }
+                double weight = queries.getValueAt(k) / length * idf[term];
+                for (int r = 0; r < rank; r++) {
+                    query[r] += weight * termVectors[term][r];
+                }
+            }
+            double queryNorm = norm(query);
+
+            double[] scores = new double[docVectors.length];
+            for (int j = 0; j < docVectors.length; j++) {
+                double cross = queryNorm * docNorms[j];
+                if (cross != 0.0) {
+                    double product = 0.0;
+                    for (int r = 0; r < rank; r++) {
+                        product += query[r] * docVectors[j][r];
+                    }
+                    scores[j] = product / cross;
+                }
+            }
+            return scores;
+        }
+
+        /**
+         * A x, with A the terms x docs matrix whose entries are the weights of the targets' CSR positions
+         */
+        private double[][] multiply(double[] weights, double[][] x, int numTerms) {
+            double[][] y = new double[numTerms][x[0].length];
+            for (int j = 0; j < targets.NumDocs(); j++) {
+                for (int k = targets.getRowStart(j); k < targets.getRowEnd(j); k++) {
+                    double[] out = y[targets.getTermIdAt(k)];
+                    for (int c = 0; c < out.length; c++) {
+                        out[c] += weights[k] * x[j][c];
+                    }
+                }
+            }
+            return y;
+        }
+
+        /**
+         * A^T x
+         */
+        private double[][] multiplyTransposed(double[] weights, double[][] x, int numDocs) {
+            double[][] y = new double[numDocs][x[0].length];
+            for (int j = 0; j < numDocs; j++) {
+                double[] out = y[j];
+                for (int k = targets.getRowStart(j); k < targets.getRowEnd(j); k++) {
+                    double[] in = x[targets.getTermIdAt(k)];
+                    for (int c = 0; c < out.length; c++) {
+                        out[c] += weights[k] * in[c];
+                    }
+                }
+            }
+            return y;
+        }
+    }
+
+    /**
+     * Modified Gram-Schmidt over the columns, columns that vanish are left at zero
+     */
+    private static double[][] orthonormalize(double[][] m) {
+        int columns = m[0].length;
+        for (int c = 0; c < columns; c++) {
+            for (int p = 0; p < c; p++) {
+                double dot = 0.0;
+                for (double[] row : m) {
+                    dot += row[c] * row[p];
+                }
+                for (double[] row : m) {
+                    row[c] -= dot * row[p];
+                }
+            }
+            double norm = 0.0;
+            for (double[] row : m) {
+                norm += row[c] * row[c];
+            }
+            norm = Math.sqrt(norm);
+            for (double[] row : m) {
+                row[c] = norm > 1e-12 ? row[c] / norm : 0.0;
+            }
+        }
+        return m;
+    }
+
+    private static double[][] transpose(double[][] m) {
+        double[][] t = new double[m[0].length][m.length];
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[i].length; j++) {
+                t[j][i] = m[i][j];
+            }
+        }
+        return t;
+    }
+
+    private static double norm(double[] vector) {
+        double squared = 0.0;
+        for (double x : vector) {
+            squared += x * x;
+        }
+        return Math.sqrt(squared);
+    }
+}
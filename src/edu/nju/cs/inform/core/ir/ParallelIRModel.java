@@ -0,0 +1,14 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An IRModel that can score the source artifacts concurrently.
+ * The result must be identical to the sequential Compute.
+ */
+public interface ParallelIRModel extends IRModel {
+    public SimilarityMatrix Compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, ForkJoinPool pool);
+}
@@ -0,0 +1,43 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+
+/**
+ * Query likelihood language model with Dirichlet smoothing, the requirements are the documents
+ * and each change description is a query.
+ *
+ * log p(q|d) ranks as the sum over the shared terms of tf(q) * log(1 + tf / (mu * p(t|C))) plus
+ * |q| * log(mu / (|d| + mu)) once per document. The first part are the posting weights, the
+ * second the document prior, which is never positive. Query terms missing from the requirements
+ * are left out of |q|.
+ */
+public class QueryLikelihood extends InvertedIndexModel {
+
+    private static final double MU = 2000;
+
+    @Override
+    protected double[] ComputeDocumentWeights(SparseTermDocumentMatrix targets) {
+        double[] collectionCounts = new double[targets.NumTerms()];
+        double collectionLength = 0.0;
+        for (int k = 0; k < targets.NumNonZeros(); k++) {
+            collectionCounts[targets.getTermIdAt(k)] += targets.getValueAt(k);
+            collectionLength += targets.getValueAt(k);
+        }
+
+        double[] weights = new double[targets.NumNonZeros()];
+        for (int k = 0; k < weights.length; k++) {
+            double collectionProbability = collectionCounts[targets.getTermIdAt(k)] / collectionLength;
+            weights[k] = Math.log(1 + targets.getValueAt(k) / (MU * collectionProbability));
+        }
+        return weights;
+    }
+
+    @Override
+    protected double[] ComputeDocumentPriors(SparseTermDocumentMatrix targets) {
+        double[] priors = new double[targets.NumDocs()];
+        for (int j = 0; j < priors.length; j++) {
+            priors[j] = Math.log(MU / (targets.getDocumentLength(j) + MU));
+        }
+        return priors;
+    }
+}
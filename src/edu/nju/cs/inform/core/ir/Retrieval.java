@@ -3,10 +3,12 @@ package edu.nju.cs.inform.core.ir;
 import edu.nju.cs.inform.core.diff.CodeElementsComparer;
 import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
 import edu.nju.cs.inform.core.type.*;
+import edu.nju.cs.inform.io.CorpusIndex;
 import edu.nju.cs.inform.util._;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by niejia on 16/3/24.
@@ -16,8 +18,14 @@ public class Retrieval {
     private ArtifactsCollection sourceCollection;
     private ArtifactsCollection targetCollection;
     private String modelType;
+    private ForkJoinPool pool;
+    private boolean compactSimilarityMatrix;
+    private String requirementIndexPath;
+    // dictionary shared by the preprocessed code and requirements
+    private TermVocabulary vocabulary = new TermVocabulary();
 
     private SimilarityMatrix sm;
+    private LinksList topLinks;
     private Map<String, Double> candidateOutdatedRequirementsRank;
 
     public Retrieval(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, String modelType) {
@@ -45,8 +53,75 @@ public class Retrieval {
         generateFinalRank();
     }
 
+    /**
+     * Streaming variant of tracing, the SimilarityMatrix is never built and only the topK best
+     * candidate outdated requirements are kept, ranked by descending score.
+     * getSimilarityMatrix() returns null afterwards, the topK links of every change are
+     * available from getTopLinks().
+     */
+    public void tracing(int topK) {
+        preprocessCode(sourceCollection);
+        preprocessRequirement(targetCollection);
+
+        TopKRequirementsCollector collector = new TopKRequirementsCollector(new ArrayList<>(sourceCollection.keySet()),
+                new ArrayList<>(targetCollection.keySet()), topK, 0.0);
+        IR.compute(sourceCollection, targetCollection, modelType, collector);
+        collector.finish();
+
+        sm = null;
+        topLinks = collector.getTopLinks();
+        candidateOutdatedRequirementsRank = collector.getCandidateOutdatedRequirementsRank();
+    }
+
+    /**
+     * Per change variant of tracing(int): every change only keeps its topK best requirements, a
+     * TopKIRModel like BM25 skips the requirements that cannot make it without scoring them.
+     * The candidate outdated requirements rank sums the kept links only, highest score first.
+     * getSimilarityMatrix() returns null afterwards, the kept links are available from getTopLinks().
+     */
+    public void tracingPerChange(int topK) {
+        preprocessCode(sourceCollection);
+        preprocessRequirement(targetCollection);
+
+        final List<String> sourceIds = new ArrayList<>(sourceCollection.keySet());
+        final List<String> targetIds = new ArrayList<>(targetCollection.keySet());
+        final double[] requirementScores = new double[targetIds.size()];
+        final LinksList links = new LinksList();
+        IR.compute(sourceCollection, targetCollection, modelType, topK, new ScoreListener() {
+            @Override
+            public void onScore(int sourceIndex, int targetIndex, double score) {
+                if (score > 0.0) {
+                    links.add(new SingleLink(sourceIds.get(sourceIndex), targetIds.get(targetIndex), score));
+                    requirementScores[targetIndex] += score;
+                }
+            }
+        });
+
+        TopKSelector rank = new TopKSelector(targetIds.size());
+        for (int j = 0; j < requirementScores.length; j++) {
+            if (requirementScores[j] > 0.0) {
+                rank.offer(j, requirementScores[j]);
+            }
+        }
+        int[] requirements = new int[targetIds.size()];
+        double[] scores = new double[targetIds.size()];
+        int count = rank.drainSorted(requirements, scores);
+
+        sm = null;
+        topLinks = links;
+        candidateOutdatedRequirementsRank = new LinkedHashMap<>();
+        for (int n = 0; n < count; n++) {
+            candidateOutdatedRequirementsRank.put(targetIds.get(requirements[n]), scores[n]);
+        }
+    }
+
      public void generateFinalRank() {
 
+        if (sm instanceof CompactSimilarityMatrix) {
+            generateFinalRank((CompactSimilarityMatrix) sm);
+            return;
+        }
+
         LinksList allLinks = sm.getLinksAboveThreshold();
         for (SingleLink link : allLinks) {
             String req = link.getTargetArtifactId();
@@ -62,25 +137,118 @@ public class Retrieval {
         _.sortValueByDescending(candidateOutdatedRequirementsRank);
     }
 
+    /**
+     * Same rank as the map path: a requirement enters the rank at its first link, going through
+     * the changes in order and the links of a change best score first.
+     */
+    private void generateFinalRank(final CompactSimilarityMatrix compact) {
+        final double[] requirementScores = new double[compact.NumTargets()];
+        final int[] firstSources = new int[compact.NumTargets()];
+        Arrays.fill(firstSources, -1);
+        compact.forEachLinkAboveThreshold(new LinkVisitor() {
+            @Override
+            public void visit(int sourceIndex, int targetIndex, float score) {
+                requirementScores[targetIndex] += score;
+                if (firstSources[targetIndex] < 0) {
+                    firstSources[targetIndex] = sourceIndex;
+                }
+            }
+        });
+
+        List<Integer> linkedRequirements = new ArrayList<>();
+        for (int j = 0; j < requirementScores.length; j++) {
+            if (firstSources[j] >= 0) {
+                linkedRequirements.add(j);
+            }
+        }
+        // stable, so equal scores of a change stay in requirement order like the sorted links
+        Collections.sort(linkedRequirements, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                if (firstSources[o1] != firstSources[o2]) {
+                    return firstSources[o1] - firstSources[o2];
+                }
+                return Float.compare(compact.getScore(firstSources[o2], o2), compact.getScore(firstSources[o1], o1));
+            }
+        });
+
+        for (int j : linkedRequirements) {
+            candidateOutdatedRequirementsRank.put(compact.getTargetArtifactId(j), requirementScores[j]);
+        }
+    }
+
     public Map<String, Double> getCandidateOutdatedRequirementsRank() {
         return candidateOutdatedRequirementsRank;
     }
 
+    /**
+     * Preprocesses the artifacts and scores the change descriptions concurrently on the given pool,
+     * the result is the same as a sequential run.
+     */
+    public void setParallelPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Keeps the similarity scores as floats in a CompactSimilarityMatrix instead of nested maps of Double.
+     * The scores are streamed from the model, so the parallel pool is not used in this mode.
+     */
+    public void setCompactSimilarityMatrix(boolean compactSimilarityMatrix) {
+        this.compactSimilarityMatrix = compactSimilarityMatrix;
+    }
+
+    /**
+     * Keeps the preprocessed requirements in a CorpusIndex file, only requirements whose text
+     * changed since the last run are preprocessed again.
+     */
+    public void setRequirementIndex(String indexPath) {
+        this.requirementIndexPath = indexPath;
+    }
+
     private void computeSimilarity() {
-        sm = IR.compute(sourceCollection, targetCollection, modelType);
+        if (compactSimilarityMatrix) {
+            final CompactSimilarityMatrix compact = new CompactSimilarityMatrix(new ArrayList<>(sourceCollection.keySet()),
+                    new ArrayList<>(targetCollection.keySet()));
+            IR.compute(sourceCollection, targetCollection, modelType, new ScoreListener() {
+                @Override
+                public void onScore(int sourceIndex, int targetIndex, double score) {
+                    compact.setScore(sourceIndex, targetIndex, (float) score);
+                }
+            });
+            sm = compact;
+        } else {
+            sm = IR.compute(sourceCollection, targetCollection, modelType, pool);
+        }
     }
 
     private void preprocessCode(ArtifactsCollection codeCollection) {
-        for (String change : codeCollection.keySet()) {
-            Artifact artifact = codeCollection.get(change);
-            artifact.text = ArtifactPreprocessor.handleJavaFile(artifact.text);
+        ArtifactsCollection preprocessed = ArtifactPreprocessor.handleJavaFiles(codeCollection, vocabulary, pool);
+        for (String change : preprocessed.keySet()) {
+            codeCollection.put(change, preprocessed.get(change));
         }
     }
 
     private void preprocessRequirement(ArtifactsCollection reqCollection) {
-        for (String requirement : reqCollection.keySet()) {
-            Artifact artifact = reqCollection.get(requirement);
-            artifact.text = ArtifactPreprocessor.handlePureTextFile(artifact.text);
+        if (requirementIndexPath != null) {
+            CorpusIndex index = CorpusIndex.load(requirementIndexPath);
+            index.update(reqCollection);
+            try {
+                index.save(requirementIndexPath);
+            } catch (IOException x) {
+                // the requirements are preprocessed, only the next run can't reuse them
+                System.err.format("IOException: %s%n", x);
+            }
+
+            ArtifactsCollection preprocessed = index.getPreprocessedCollection();
+            for (String requirement : preprocessed.keySet()) {
+                reqCollection.put(requirement, preprocessed.get(requirement));
+            }
+            return;
+        }
+
+        ArtifactsCollection preprocessed = ArtifactPreprocessor.handlePureTextFiles(reqCollection, vocabulary, pool);
+        for (String requirement : preprocessed.keySet()) {
+            reqCollection.put(requirement, preprocessed.get(requirement));
         }
     }
 
@@ -88,6 +256,10 @@ public class Retrieval {
         return sm;
     }
 
+    public LinksList getTopLinks() {
+        return topLinks;
+    }
+
     private ArtifactsCollection deepCopy(ArtifactsCollection originCollection) {
         ArtifactsCollection collections = new ArtifactsCollection();
         for (String id : originCollection.keySet()) {
@@ -0,0 +1,11 @@
+package edu.nju.cs.inform.core.ir;
+
+/**
+ * Receives similarity scores one pair at a time instead of as a SimilarityMatrix.
+ *
+ * Indexes refer to the iteration order of the source and target collections. All targets
+ * of a source are reported consecutively in target order, and sources arrive in order.
+ */
+public interface ScoreListener {
+    public void onScore(int sourceIndex, int targetIndex, double score);
+}
@@ -0,0 +1,62 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.LinksList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores a range of source rows, splitting the range across a ForkJoinPool.
+ *
+ * Every row is written into its own slot of a pre-sized array, and the caller adds the
+ * slots to the SimilarityMatrix in source order, so a parallel run gives exactly the
+ * same matrix as a sequential one.
+ */
+class SourceRowsTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    interface RowScorer {
+        LinksList score(int row);
+    }
+
+    private final RowScorer scorer;
+    private final LinksList[] rows;
+    private final int from;
+    private final int to;
+
+    private SourceRowsTask(RowScorer scorer, LinksList[] rows, int from, int to) {
+        this.scorer = scorer;
+        this.rows = rows;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @param pool pool to run on, or null to score the rows on the calling thread
+     * @return the links of every source row, indexed by row
+     */
+    static LinksList[] scoreRows(int numRows, RowScorer scorer, ForkJoinPool pool) {
+        LinksList[] rows = new LinksList[numRows];
+        if (pool == null) {
+            for (int i = 0; i < numRows; i++) {
+                rows[i] = scorer.score(i);
+            }
+        } else if (numRows > 0) {
+            pool.invoke(new SourceRowsTask(scorer, rows, 0, numRows));
+        }
+        return rows;
+    }
+
+    @Override
+    protected void compute() {
+        // a single row already costs a pass over every target, so split all the way down
+        if (to - from == 1) {
+            rows[from] = scorer.score(from);
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new SourceRowsTask(scorer, rows, from, middle),
+                    new SourceRowsTask(scorer, rows, middle, to));
+        }
+    }
+}
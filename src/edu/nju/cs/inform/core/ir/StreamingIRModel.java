@@ -0,0 +1,10 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+
+/**
+ * An IRModel that can report its scores to a ScoreListener without building a SimilarityMatrix.
+ */
+public interface StreamingIRModel extends IRModel {
+    public void Compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, ScoreListener listener);
+}
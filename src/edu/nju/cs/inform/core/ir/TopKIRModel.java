@@ -0,0 +1,15 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+
+/**
+ * An IRModel that can report only the topK best targets of every source, without scoring
+ * the targets that cannot make it into the topK.
+ */
+public interface TopKIRModel extends IRModel {
+    /**
+     * The topK targets of every source are reported best score first, sources in collection order.
+     * Targets sharing no term with the source are not reported.
+     */
+    public void Compute(ArtifactsCollection sourceCollection, ArtifactsCollection targetCollection, int topK, ScoreListener listener);
+}
@@ -0,0 +1,103 @@
+package edu.nju.cs.inform.core.ir;
+
+import edu.nju.cs.inform.core.type.LinksList;
+import edu.nju.cs.inform.core.type.SingleLink;
+import edu.nju.cs.inform.core.type.TopKSelector;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the scores of a retrieval run into a bounded candidate outdated requirements rank.
+ *
+ * The rank score of a requirement is the sum of its link scores above the threshold, the same
+ * as Retrieval.generateFinalRank. Only one primitive score per requirement and a k-sized heap
+ * per source are kept, every other link is dropped as soon as it has been seen.
+ */
+public class TopKRequirementsCollector implements ScoreListener {
+
+    private final List<String> sourceIds;
+    private final List<String> targetIds;
+    private final double threshold;
+
+    private final double[] requirementScores;
+    private final TopKSelector requirementSelector;
+    private final TopKSelector sourceSelector;
+    private final int[] drainedIndices;
+    private final double[] drainedScores;
+
+    private int currentSource;
+    private LinksList topLinks;
+
+    public TopKRequirementsCollector(List<String> sourceIds, List<String> targetIds, int k, double threshold) {
+        this.sourceIds = sourceIds;
+        this.targetIds = targetIds;
+        this.threshold = threshold;
+
+        this.requirementScores = new double[targetIds.size()];
+        this.requirementSelector = new TopKSelector(k);
+        this.sourceSelector = new TopKSelector(k);
+        this.drainedIndices = new int[k];
+        this.drainedScores = new double[k];
+
+        this.currentSource = -1;
+        this.topLinks = new LinksList();
+    }
+
+    @Override
+    public void onScore(int sourceIndex, int targetIndex, double score) {
+        if (sourceIndex != currentSource) {
+            flushSource();
+            currentSource = sourceIndex;
+        }
+        if (score > threshold) {
+            requirementScores[targetIndex] += score;
+            sourceSelector.offer(targetIndex, score);
+        }
+    }
+
+    private void flushSource() {
+        if (currentSource < 0) {
+            return;
+        }
+        int count = sourceSelector.drainSorted(drainedIndices, drainedScores);
+        for (int n = 0; n < count; n++) {
+            topLinks.add(new SingleLink(sourceIds.get(currentSource), targetIds.get(drainedIndices[n]), drainedScores[n]));
+        }
+    }
+
+    /**
+     * Must be called once every score has been reported.
+     */
+    public void finish() {
+        flushSource();
+        currentSource = -1;
+
+        for (int t = 0; t < requirementScores.length; t++) {
+            if (requirementScores[t] > 0.0) {
+                requirementSelector.offer(t, requirementScores[t]);
+            }
+        }
+    }
+
+    /**
+     * @return the k best candidate outdated requirements, highest score first
+     */
+    public Map<String, Double> getCandidateOutdatedRequirementsRank() {
+        Map<String, Double> rank = new LinkedHashMap<>();
+        int count = requirementSelector.drainSorted(drainedIndices, drainedScores);
+        for (int n = 0; n < count; n++) {
+            rank.put(targetIds.get(drainedIndices[n]), drainedScores[n]);
+            requirementSelector.offer(drainedIndices[n], drainedScores[n]);
+        }
+        return rank;
+    }
+
+    /**
+     * @return the k best links above the threshold of every source, grouped by source
+     */
+    public LinksList getTopLinks() {
+        return topLinks;
+    }
+}
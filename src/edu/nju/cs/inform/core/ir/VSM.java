@@ -2,134 +2,130 @@ package edu.nju.cs.inform.core.ir;
 
 import edu.nju.cs.inform.core.type.*;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by niejia on 15/12/21.
  */
-public class VSM implements IRModel {
+public class VSM implements ParallelIRModel, StreamingIRModel {
 
     public SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target) {
+        return Compute(source, target, (ForkJoinPool) null);
+    }
+
+    public SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target, ForkJoinPool pool) {
 
         ArtifactsCollection bothSourceAndTarget = new ArtifactsCollection();
         bothSourceAndTarget.putAll(source);
         bothSourceAndTarget.putAll(target);
 
-        return Compute(new TermDocumentMatrix(source), new TermDocumentMatrix(target), new TermDocumentMatrix(bothSourceAndTarget));
+        return Compute(source, target, new SparseTermDocumentMatrix(bothSourceAndTarget), pool);
     }
 
-    private SimilarityMatrix Compute(TermDocumentMatrix source, TermDocumentMatrix target, TermDocumentMatrix both) {
+    public void Compute(ArtifactsCollection source, ArtifactsCollection target, ScoreListener listener) {
 
-        TermDocumentMatrix TF = ComputeTF(both);
-        double[] IDF = ComputeIDF(ComputeDF(both), both.NumDocs());
-        TermDocumentMatrix TFIDF = ComputeTFIDF(TF, IDF);
+        ArtifactsCollection bothSourceAndTarget = new ArtifactsCollection();
+        bothSourceAndTarget.putAll(source);
+        bothSourceAndTarget.putAll(target);
+        SparseTermDocumentMatrix both = new SparseTermDocumentMatrix(bothSourceAndTarget);
 
-        TermDocumentMatrix sourceIDs = ComputeIdentities(source);
-        TermDocumentMatrix targetIDs = ComputeIdentities(target);
+        double[] IDF = ComputeIDF(both.getDocumentFrequencies(), both.NumDocs());
+        double[] TFIDF = ComputeTFIDF(both, IDF);
+        double[] squaredNorms = ComputeSquaredNorms(both, TFIDF);
 
-        TermDocumentMatrix sourceWithTFIDF = ReplaceIDWithTFIDF(sourceIDs, TFIDF);
-        TermDocumentMatrix targetWithTFIDF = ReplaceIDWithTFIDF(targetIDs, TFIDF);
+        int[] targetRows = getRows(both, new ArrayList<>(target.keySet()));
+        InvertedIndex targetIndex = new InvertedIndex(both, TFIDF, targetRows);
+        double[] targetSquaredNorms = getTargetSquaredNorms(squaredNorms, targetRows);
+        double[] products = new double[targetIndex.NumDocs()];
 
-        return ComputeSimilarities(sourceWithTFIDF, targetWithTFIDF);
-    }
+        int sourceIndex = 0;
+        for (String sourceId : source.keySet()) {
+            int i = both.getDocumentIndex(sourceId);
+            Arrays.fill(products, 0.0);
+            targetIndex.accumulate(both, TFIDF, i, products);
 
-    private TermDocumentMatrix ReplaceIDWithTFIDF(TermDocumentMatrix ids, TermDocumentMatrix tfidf) {
-        for (int i = 0; i < ids.NumDocs(); i++) {
-            for (int j = 0; j < ids.NumTerms(); j++) {
-                ids.setValue(i, j, tfidf.getValue(ids.getDocumentName(i), ids.getTermName(j)));
+            for (int j = 0; j < products.length; j++) {
+                listener.onScore(sourceIndex, j, ComputeCosine(products[j], squaredNorms[i], targetSquaredNorms[j]));
             }
+            sourceIndex++;
         }
-        return ids;
     }
 
-    private TermDocumentMatrix ComputeTFIDF(TermDocumentMatrix tf, double[] idf) {
-        for (int i = 0; i < tf.NumDocs(); i++) {
-            for (int j = 0; j < tf.NumTerms(); j++) {
-                tf.setValue(i, j, tf.getValue(i, j) * idf[j]);
+    private SimilarityMatrix Compute(ArtifactsCollection source, ArtifactsCollection target, SparseTermDocumentMatrix both, ForkJoinPool pool) {
+
+        double[] IDF = ComputeIDF(both.getDocumentFrequencies(), both.NumDocs());
+        double[] TFIDF = ComputeTFIDF(both, IDF);
+        double[] squaredNorms = ComputeSquaredNorms(both, TFIDF);
+
+        return ComputeSimilarities(source, target, both, TFIDF, squaredNorms, pool);
+    }
+
+    /**
+     * Weights of the non-zero entries of the matrix, aligned with its CSR positions
+     */
+    private double[] ComputeTFIDF(SparseTermDocumentMatrix matrix, double[] idf) {
+        double[] tfidf = new double[matrix.NumNonZeros()];
+        for (int i = 0; i < matrix.NumDocs(); i++) {
+            double max = matrix.getDocumentLength(i);
+            for (int k = matrix.getRowStart(i); k < matrix.getRowEnd(i); k++) {
+                tfidf[k] = (matrix.getValueAt(k) / max) * idf[matrix.getTermIdAt(k)];
             }
         }
-        return tf;
+        return tfidf;
     }
 
-    private double[] ComputeIDF(double[] df, int numDocs) {
+    private double[] ComputeIDF(int[] df, int numDocs) {
         double[] idf = new double[df.length];
         for (int i = 0; i < df.length; i++) {
-            if (df[i] <= 0.0) {
+            if (df[i] <= 0) {
                 idf[i] = 0.0;
             } else {
-                idf[i] = Math.log(numDocs / df[i]);
+                idf[i] = Math.log(numDocs / (double) df[i]);
             }
         }
         return idf;
     }
 
-    private double[] ComputeDF(TermDocumentMatrix matrix) {
-        double[] df = new double[matrix.NumTerms()];
-        for (int j = 0; j < matrix.NumTerms(); j++) {
-            df[j] = 0.0;
-            for (int i = 0; i < matrix.NumDocs(); i++) {
-                df[j] += (matrix.getValue(i, j) > 0.0) ? 1.0 : 0.0;
-            }
-        }
-        return df;
-    }
-
-    private TermDocumentMatrix ComputeTF(TermDocumentMatrix matrix) {
+    private double[] ComputeSquaredNorms(SparseTermDocumentMatrix matrix, double[] tfidf) {
+        double[] squaredNorms = new double[matrix.NumDocs()];
         for (int i = 0; i < matrix.NumDocs(); i++) {
-            double max = 0.0;
-            for (int k = 0; k < matrix.NumTerms(); k++) {
-                max += matrix.getValue(i, k);
-            }
-
-            for (int j = 0; j < matrix.NumTerms(); j++) {
-                matrix.setValue(i, j, (matrix.getValue(i, j) / max));
+            double squared = 0.0;
+            for (int k = matrix.getRowStart(i); k < matrix.getRowEnd(i); k++) {
+                squared += tfidf[k] * tfidf[k];
             }
+            squaredNorms[i] = squared;
         }
-        return matrix;
+        return squaredNorms;
     }
 
-    private TermDocumentMatrix ComputeIdentities(TermDocumentMatrix matrix) {
-        for (int i = 0; i < matrix.NumDocs(); i++) {
-            for (int j = 0; j < matrix.NumTerms(); j++) {
-                matrix.setValue(i, j, ((matrix.getValue(i, j) > 0.0) ? 1.0 : 0.0));
-            }
+    private double[] getTargetSquaredNorms(double[] squaredNorms, int[] targetRows) {
+        double[] targetSquaredNorms = new double[targetRows.length];
+        for (int j = 0; j < targetRows.length; j++) {
+            targetSquaredNorms[j] = squaredNorms[targetRows[j]];
         }
-        return matrix;
+        return targetSquaredNorms;
     }
 
-    private SimilarityMatrix ComputeSimilarities(TermDocumentMatrix ids, TermDocumentMatrix tfidf) {
+    private SimilarityMatrix ComputeSimilarities(ArtifactsCollection source, ArtifactsCollection target,
+                                                 final SparseTermDocumentMatrix both, final double[] tfidf,
+                                                 final double[] squaredNorms, ForkJoinPool pool) {
         SimilarityMatrix sims = new SimilarityMatrix();
-        List<TermDocumentMatrix> matrices = TermDocumentMatrix.Equalize(ids, tfidf);
 
-        for (int i = 0; i < ids.NumDocs(); i++) {
-            LinksList links = new LinksList();
-            for (int j = 0; j < tfidf.NumDocs(); j++) {
-                double product = 0.0;
-                double asquared = 0.0;
-                double bsquared = 0.0;
+        final List<String> sourceIds = new ArrayList<>(source.keySet());
+        final List<String> targetIds = new ArrayList<>(target.keySet());
+        final int[] targetRows = getRows(both, targetIds);
+        final InvertedIndex targetIndex = new InvertedIndex(both, tfidf, targetRows);
+        final double[] targetSquaredNorms = getTargetSquaredNorms(squaredNorms, targetRows);
 
-                for (int k = 0; k < matrices.get(0).NumTerms(); k++) {
-
-                    double a = matrices.get(0).getValue(i, k);
-
-                    double b = matrices.get(1).getValue(j, k);
-
-                    product += (a * b);
-                    asquared += Math.pow(a, 2);
-                    bsquared += Math.pow(b, 2);
-                }
-
-                double cross = Math.sqrt(asquared) * Math.sqrt(bsquared);
-                if (cross == 0.0) {
-                    links.add(new SingleLink(ids.getDocumentName(i).trim(), tfidf.getDocumentName(j).trim(), 0.0));
-                } else {
-                    links.add(new SingleLink(ids.getDocumentName(i), tfidf.getDocumentName(j), product / cross));
-                }
+        LinksList[] rows = SourceRowsTask.scoreRows(sourceIds.size(), new SourceRowsTask.RowScorer() {
+            @Override
+            public LinksList score(int row) {
+                return ComputeSimilaritiesForSource(sourceIds.get(row), targetIds, both, tfidf, squaredNorms, targetIndex, targetSquaredNorms);
             }
+        }, pool);
 
-            Collections.sort(links, Collections.reverseOrder());
-
+        for (LinksList links : rows) {
             for (SingleLink link : links) {
                 sims.addLink(link.getSourceArtifactId(), link.getTargetArtifactId(), link.getScore());
             }
@@ -137,4 +133,40 @@ public class VSM implements IRModel {
 
         return sims;
     }
+
+    private LinksList ComputeSimilaritiesForSource(String sourceId, List<String> targetIds, SparseTermDocumentMatrix both,
+                                                   double[] tfidf, double[] squaredNorms, InvertedIndex targetIndex,
+                                                   double[] targetSquaredNorms) {
+        int i = both.getDocumentIndex(sourceId);
+        double[] products = new double[targetIds.size()];
+        targetIndex.accumulate(both, tfidf, i, products);
+
+        LinksList links = new LinksList();
+        for (int j = 0; j < targetIds.size(); j++) {
+            String targetId = targetIds.get(j);
+
+            double cross = Math.sqrt(squaredNorms[i]) * Math.sqrt(targetSquaredNorms[j]);
+            if (cross == 0.0) {
+                links.add(new SingleLink(sourceId.trim(), targetId.trim(), 0.0));
+            } else {
+                links.add(new SingleLink(sourceId, targetId, products[j] / cross));
+            }
+        }
+
+        Collections.sort(links, Collections.reverseOrder());
+        return links;
+    }
+
+    private double ComputeCosine(double product, double asquared, double bsquared) {
+        double cross = Math.sqrt(asquared) * Math.sqrt(bsquared);
+        return cross == 0.0 ? 0.0 : product / cross;
+    }
+
+    private int[] getRows(SparseTermDocumentMatrix matrix, List<String> artifactIds) {
+        int[] rows = new int[artifactIds.size()];
+        for (int j = 0; j < rows.length; j++) {
+            rows[j] = matrix.getDocumentIndex(artifactIds.get(j));
+        }
+        return rows;
+    }
 }
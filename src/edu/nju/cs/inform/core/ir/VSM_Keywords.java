@@ -1,7 +1,8 @@
 package edu.nju.cs.inform.core.ir;
 
 import edu.nju.cs.inform.core.type.ArtifactsCollection;
-import edu.nju.cs.inform.core.type.TermDocumentMatrix;
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+import edu.nju.cs.inform.core.type.TermVocabulary;
 
 import java.util.*;
 
@@ -10,33 +11,36 @@ import java.util.*;
  */
 public class VSM_Keywords {
 
-    private TermDocumentMatrix changeMatrix;
-    private TermDocumentMatrix codeMatrix;
-    private TermDocumentMatrix TFIDF;
+    private SparseTermDocumentMatrix changeMatrix;
+    // terms with an id below this bound make up the vocabulary of the change collection
+    private int changeTermCount;
+    private double[] TFIDF;
 
 
 
     public VSM_Keywords(ArtifactsCollection changeCollection, ArtifactsCollection codeCollection) {
+        this(changeCollection, new KeywordsScorer(codeCollection));
+    }
+
+    /**
+     * Reuses the codebase document frequencies of the scorer, see KeywordsScorer.score
+     */
+    VSM_Keywords(ArtifactsCollection changeCollection, KeywordsScorer scorer) {
 
-        TermDocumentMatrix changeMatrix = new TermDocumentMatrix(changeCollection);
-        TermDocumentMatrix codeMatrix = new TermDocumentMatrix(codeCollection);
+        TermVocabulary vocabulary = new TermVocabulary();
+        this.changeMatrix = new SparseTermDocumentMatrix(changeCollection, vocabulary);
+        this.changeTermCount = vocabulary.size();
 
-        TermDocumentMatrix TF_Changes = ComputeTF(changeMatrix);
+        double[] TF_Changes = ComputeTF(changeMatrix);
 
-        Map<String, Double> idfMap = ComputeIDFFromBoth(changeCollection, codeCollection);
-        this.TFIDF = ComputeTFIDF(TF_Changes, idfMap);
-//        getTopkTerm(0, TFIDF);
+        double[] IDF = scorer.ComputeIDF(changeMatrix);
+        this.TFIDF = ComputeTFIDF(changeMatrix, TF_Changes, IDF);
 
     }
 
     public List<String> getTopkTermInDoc(int k, String docName) {
         List<String> topkTerm = new ArrayList<>();
-        Map<String, Double> termsList = new TreeMap<>();
-        double[] documents = TFIDF.getDocument(docName);
-        for (int j = 0; j < documents.length; j++) {
-            termsList.put(TFIDF.getTermName(j), TFIDF.getValue(TFIDF.getDocumentIndex(docName), j));
-        }
-        Map<String, Double> sortedTermsList = sortByValue(termsList);
+        Map<String, Double> sortedTermsList = getTermsScoreInDoc(docName);
 
         int i = 0;
         for (String term : sortedTermsList.keySet()) {
@@ -53,108 +57,35 @@ public class VSM_Keywords {
 
     public Map<String, Double> getTermsScoreInDoc(String docName) {
         Map<String, Double> termsList = new TreeMap<>();
-        double[] documents = TFIDF.getDocument(docName);
-        for (int j = 0; j < documents.length; j++) {
-            termsList.put(TFIDF.getTermName(j), TFIDF.getValue(TFIDF.getDocumentIndex(docName), j));
-            if (TFIDF.getValue(TFIDF.getDocumentIndex(docName), j) != 0.0) {
-//                System.out.println(TFIDF.getTermName(j) + " " + TFIDF.getValue(TFIDF.getDocumentIndex(docName), j));
-            }
+        for (int j = 0; j < changeTermCount; j++) {
+            termsList.put(changeMatrix.getTermName(j), 0.0);
+        }
 
+        int doc = changeMatrix.getDocumentIndex(docName);
+        for (int k = changeMatrix.getRowStart(doc); k < changeMatrix.getRowEnd(doc); k++) {
+            termsList.put(changeMatrix.getTermName(changeMatrix.getTermIdAt(k)), TFIDF[k]);
         }
         Map<String, Double> sortedTermsList = sortByValue(termsList);
 
         return sortedTermsList;
     }
 
-    private Map<String, Double> ComputeIDFFromBoth(ArtifactsCollection changeCollection, ArtifactsCollection codeCollection) {
-        Map<String, Double> idfMap = new LinkedHashMap<>();
-
-        ArtifactsCollection bothSourceAndTarget = new ArtifactsCollection();
-        bothSourceAndTarget.putAll(changeCollection);
-        bothSourceAndTarget.putAll(codeCollection);
-
-        TermDocumentMatrix both = new TermDocumentMatrix(bothSourceAndTarget);
-        double[] IDF = ComputeIDF(ComputeDF(both), both.NumDocs());
-
-        for (int j = 0; j < both.NumTerms(); j++) {
-            idfMap.put(both.getTermName(j), IDF[j]);
-        }
-
-        return sortByValue(idfMap);
-    }
-
-    private static Map<String, Double> ComputeIDFMap(TermDocumentMatrix matrix, double[] idf) {
-        Map<String, Double> idfMap = new LinkedHashMap<>();
-
-        for (int j = 0; j < matrix.NumTerms(); j++) {
-            idfMap.put(matrix.getTermName(j), idf[j]);
-        }
-
-        return idfMap;
-    }
-
-    private  List<Map<String, Double>> getTopkTerm(int k, TermDocumentMatrix tfidf) {
-
-        List<Map<String, Double>> result = new ArrayList<>();
-
-
-        for (int i = 0; i < tfidf.NumDocs(); i++) {
-            Map<String, Double> topkTerm = new TreeMap<>();
-            for (int j = 0; j < tfidf.NumTerms(); j++) {
-                topkTerm.put(tfidf.getTermName(j), tfidf.getValue(i, j));
-            }
-            Map<String, Double> sortedTopkTerm = sortByValue(topkTerm);
-            result.add(topkTerm);
-        }
-
-        return result;
-    }
-
-    private  double[] ComputeIDF(double[] df, int numDocs) {
-        double[] idf = new double[df.length];
-        Map<String, Double> idfMap = new LinkedHashMap<>();
-        for (int i = 0; i < df.length; i++) {
-            if (df[i] <= 0.0) {
-                idf[i] = 0.0;
-            } else {
-                idf[i] = Math.log(numDocs / df[i]);
-            }
-        }
-        return idf;
-    }
-
-    private  TermDocumentMatrix ComputeTFIDF(TermDocumentMatrix tf, Map<String,Double> idf) {
-        for (int i = 0; i < tf.NumDocs(); i++) {
-            for (int j = 0; j < tf.NumTerms(); j++) {
-                tf.setValue(i, j, tf.getValue(i, j) * idf.get(tf.getTermName(j)));
-            }
+    private  double[] ComputeTFIDF(SparseTermDocumentMatrix matrix, double[] tf, double[] idf) {
+        for (int k = 0; k < matrix.NumNonZeros(); k++) {
+            tf[k] = tf[k] * idf[matrix.getTermIdAt(k)];
         }
         return tf;
     }
 
-    private  double[] ComputeDF(TermDocumentMatrix matrix) {
-        double[] df = new double[matrix.NumTerms()];
-        for (int j = 0; j < matrix.NumTerms(); j++) {
-            df[j] = 0.0;
-            for (int i = 0; i < matrix.NumDocs(); i++) {
-                df[j] += (matrix.getValue(i, j) > 0.0) ? 1.0 : 0.0;
-            }
-        }
-        return df;
-    }
-
-    private  TermDocumentMatrix ComputeTF(TermDocumentMatrix matrix) {
+    private  double[] ComputeTF(SparseTermDocumentMatrix matrix) {
+        double[] tf = new double[matrix.NumNonZeros()];
         for (int i = 0; i < matrix.NumDocs(); i++) {
-            double max = 0.0;
-            for (int k = 0; k < matrix.NumTerms(); k++) {
-                max += matrix.getValue(i, k);
-            }
-
-            for (int j = 0; j < matrix.NumTerms(); j++) {
-                matrix.setValue(i, j, (matrix.getValue(i, j) / max));
+            double max = matrix.getDocumentLength(i);
+            for (int k = matrix.getRowStart(i); k < matrix.getRowEnd(i); k++) {
+                tf[k] = matrix.getValueAt(k) / max;
             }
         }
-        return matrix;
+        return tf;
     }
 
 
@@ -1,10 +1,12 @@
 package edu.nju.cs.inform.core.jda.parser;
 
 import edu.nju.cs.inform.core.jda.type.CallRelationAnalyser;
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
 import edu.nju.cs.inform.core.jda.type.JDACallRelation;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.io.ArtifactsReader;
 import edu.nju.cs.inform.util.JavaElement;
 
-import java.io.File;
 import java.util.*;
 
 /**
@@ -18,15 +20,23 @@ public class ProjectCallRelationAnalyser {
     private Hashtable<String, Vector<String>> callGraphMap;
 
     public ProjectCallRelationAnalyser(String projectDirPath) {
+        this(projectDirPath, null);
+    }
+
+    /**
+     * @param registry registry of the ASTs shared with the other analyses of the run, or null
+     */
+    public ProjectCallRelationAnalyser(String projectDirPath, CompilationUnitRegistry registry) {
         rukiaCallRelationsList = new LinkedHashSet<>();
         projectClasses = new LinkedHashSet<>();
-        callGraphMap = new Hashtable<>();
 
-        File dirFile = new File(projectDirPath);
-        for (File f : dirFile.listFiles()) {
-            CallRelationAnalyser analyser = new CallRelationAnalyser(f.getPath());
-            String className = f.getName().split("\\.")[0];
+        // every java file below the directory, other files such as META-INF are not parsed
+        for (Artifact source : ArtifactsReader.getArtifacts(projectDirPath, "*.java")) {
+            CallRelationAnalyser analyser = new CallRelationAnalyser(source, registry);
+            String className = source.id.substring(source.id.lastIndexOf('.') + 1);
             projectClasses.add(className);
+            // secondary and member types of the file are project classes as well
+            projectClasses.addAll(analyser.getClassNames());
             Set<JDACallRelation> crs = analyser.getRukiaCallRelationsList();
             for (JDACallRelation cr : crs) {
                 rukiaCallRelationsList.add(cr);
@@ -40,10 +50,14 @@ public class ProjectCallRelationAnalyser {
         // filter the call relation that caller or callee class is not in project
         filterCallRelation();
 
-        constructCallMap();
+        callGraphMap = buildCallGraphMap();
     }
 
-    private void constructCallMap() {
+    /**
+     * @return a new call graph of the project, the same getCallGraphMap() gives, for callers that change it
+     */
+    public Hashtable<String, Vector<String>> buildCallGraphMap() {
+        Hashtable<String, Vector<String>> callGraphMap = new Hashtable<>();
         for (JDACallRelation cr : rukiaCallRelationsList) {
             String caller = cr.getCaller();
             String callee = cr.getCallee();
@@ -59,6 +73,7 @@ public class ProjectCallRelationAnalyser {
                 callGraphMap.put(caller, vector);
             }
         }
+        return callGraphMap;
     }
 
     private void filterCallRelation() {
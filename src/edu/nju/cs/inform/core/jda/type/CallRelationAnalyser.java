@@ -1,5 +1,7 @@
 package edu.nju.cs.inform.core.jda.type;
 
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
+import edu.nju.cs.inform.core.type.Artifact;
 import edu.nju.cs.inform.util.JavaElement;
 import edu.nju.cs.inform.util._;
 import org.eclipse.jdt.core.dom.*;
@@ -11,30 +13,45 @@ import java.util.*;
  */
 public class CallRelationAnalyser {
     private CompilationUnit root;
-    private TypeDeclaration typeDec;
+    private AbstractTypeDeclaration typeDec;
 
     private String packageName;
     private String className;
     private String classComment;
 
     private Set<JDAVariable> fieldsList;
+    // every type of the file, member types named like Outer$Inner
+    private Set<String> classNames;
     private Set<JDACallRelation> rukiaCallRelationsList;
 
     private Map<String, String> classPackageMap;
 
 
     public CallRelationAnalyser(String path) {
-        String input = _.readFile(path);
+        this(path, null);
+    }
+
+    /**
+     * @param registry registry the AST of the file is taken from, or null to parse the file here
+     */
+    public CallRelationAnalyser(String path, CompilationUnitRegistry registry) {
+        this(new Artifact(path, _.readFile(path)), registry);
+    }
+
+    /**
+     * @param source java file already read, its text is parsed
+     */
+    public CallRelationAnalyser(Artifact source, CompilationUnitRegistry registry) {
+        String input = source.text;
 
-        ASTParser parsert = ASTParser.newParser(AST.JLS3);
-        parsert.setSource(input.toCharArray());
-        this.root = (CompilationUnit) parsert.createAST(null);
+        this.root = CompilationUnitRegistry.getCompilationUnit(registry, input);
         if (root == null || root.getPackage() == null) {
             System.out.println("");
         }
         packageName = root.getPackage().getName().getFullyQualifiedName();
 
         fieldsList = new LinkedHashSet<>();
+        classNames = new LinkedHashSet<>();
         rukiaCallRelationsList = new LinkedHashSet<>();
         classPackageMap = new LinkedHashMap<>();
 
@@ -49,10 +66,8 @@ public class CallRelationAnalyser {
 
         if (!types.isEmpty()) {
             // types.get(0) is the first class in this file, in most case is the public class
-            this.typeDec = (TypeDeclaration) types.get(0);
-            className = typeDec.getName().toString();
-
-            classComment = (typeDec.getJavadoc() != null) ? typeDec.getJavadoc().toString() : "";
+            AbstractTypeDeclaration firstType = (AbstractTypeDeclaration) types.get(0);
+            classComment = (firstType.getJavadoc() != null) ? firstType.getJavadoc().toString() : "";
         } else {
             System.out.println(("No Class exists in this java file"));
             return;
@@ -76,12 +91,40 @@ public class CallRelationAnalyser {
 
 //        System.out.println(" packageName = " + packageName );
 //        System.out.println(" className = " + className );
+        for (Object type : types) {
+            AbstractTypeDeclaration typeDeclaration = (AbstractTypeDeclaration) type;
+            analyseType(typeDeclaration, typeDeclaration.getName().toString(), new LinkedHashSet<JDAVariable>());
+        }
+    }
+
+    /**
+     * Analyses a type and then its member types, named like the binary name Outer$Inner as
+     * JavaElementsParser names them. A member type sees the fields of the types enclosing it.
+     */
+    private void analyseType(AbstractTypeDeclaration type, String name, Set<JDAVariable> enclosingFields) {
+        this.typeDec = type;
+        className = name;
+        classNames.add(name);
+        fieldsList = new LinkedHashSet<>(enclosingFields);
+
         analyseFields();
         analyseMethods();
+
+        Set<JDAVariable> fields = fieldsList;
+        for (Object declaration : type.bodyDeclarations()) {
+            if (declaration instanceof AbstractTypeDeclaration) {
+                AbstractTypeDeclaration memberType = (AbstractTypeDeclaration) declaration;
+                analyseType(memberType, name + "$" + memberType.getName().toString(), fields);
+            }
+        }
     }
 
     private void analyseFields() {
-        for (FieldDeclaration field : typeDec.getFields()) {
+        for (Object declaration : typeDec.bodyDeclarations()) {
+            if (!(declaration instanceof FieldDeclaration)) {
+                continue;
+            }
+            FieldDeclaration field = (FieldDeclaration) declaration;
             Type type = field.getType();
 
             if (isUserDefinedType(type)) {
@@ -96,7 +139,11 @@ public class CallRelationAnalyser {
     }
 
     private void analyseMethods() {
-        for (MethodDeclaration methodDeclaration : typeDec.getMethods()) {
+        for (Object declaration : typeDec.bodyDeclarations()) {
+            if (!(declaration instanceof MethodDeclaration)) {
+                continue;
+            }
+            MethodDeclaration methodDeclaration = (MethodDeclaration) declaration;
 
             String methodName = methodDeclaration.getName().getFullyQualifiedName();
 //            System.out.println("---------------------" + methodName + "---------------------");
@@ -370,6 +417,13 @@ public class CallRelationAnalyser {
         return rukiaCallRelationsList;
     }
 
+    /**
+     * @return the names of all types declared in the file, member types like Outer$Inner
+     */
+    public Set<String> getClassNames() {
+        return classNames;
+    }
+
     public static void main(String[] args) {
 //        String path = "data/AccessDAO.java";
         String path = "data/ViewPrescriptionRecordsAction.java";
@@ -0,0 +1,186 @@
+package edu.nju.cs.inform.core.jdt;
+
+import edu.nju.cs.inform.util.ContentHash;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compilation units of one run, keyed by the SHA-1 of the java source they were parsed from.
+ *
+ * The code elements of the diff and the call relations of both versions are all taken from the
+ * same files, with a registry every file is parsed once and its AST is handed to every consumer.
+ * Consumers only read the units, so one unit can be shared between threads. ASTs are large, the
+ * owner clears the registry as soon as every consumer took what it needs from them.
+ *
+ * Sources are parsed at JLS4 with Java 7 compliance and without bindings. A registry created
+ * without method bodies lets the parser skip them, which is enough for packages, classes, fields
+ * and method names, every method body of its units is empty.
+ */
+public class CompilationUnitRegistry {
+
+    // sources parsed by one task with the same compiler options
+    private static final int BATCH_SIZE = 64;
+
+    private final ConcurrentHashMap<String, CompilationUnit> units;
+    private final AtomicInteger parsed;
+    private final boolean methodBodies;
+
+    public CompilationUnitRegistry() {
+        this(true);
+    }
+
+    /**
+     * @param methodBodies false to skip the method bodies when parsing
+     */
+    public CompilationUnitRegistry(boolean methodBodies) {
+        this.units = new ConcurrentHashMap<>();
+        this.parsed = new AtomicInteger();
+        this.methodBodies = methodBodies;
+    }
+
+    /**
+     * @return the unit of the source, parsed on the first request
+     */
+    public CompilationUnit getCompilationUnit(String javaSource) {
+        String hash = ContentHash.sha1(javaSource);
+        CompilationUnit unit = units.get(hash);
+        if (unit == null) {
+            ASTParser parser = newParser(getCompilerOptions(), methodBodies);
+            parser.setSource(javaSource.toCharArray());
+            unit = register(hash, (CompilationUnit) parser.createAST(null));
+        }
+        return unit;
+    }
+
+    /**
+     * Parses sources in batches, the compiler options are set up once per batch instead of once
+     * per source. Sources already in the registry are skipped.
+     *
+     * @param sources java sources keyed by their ContentHash.sha1, so identical files are parsed once
+     * @param pool    pool the batches are spread over, or null to parse them on the calling thread
+     */
+    public void parseSources(Map<String, String> sources, ForkJoinPool pool) {
+        List<String> hashes = new ArrayList<>();
+        for (String hash : sources.keySet()) {
+            if (!units.containsKey(hash)) {
+                hashes.add(hash);
+            }
+        }
+        String[] missing = hashes.toArray(new String[hashes.size()]);
+        if (pool == null || missing.length <= BATCH_SIZE) {
+            parseBatch(missing, sources, 0, missing.length);
+        } else {
+            pool.invoke(new BatchTask(missing, sources, 0, missing.length));
+        }
+    }
+
+    private void parseBatch(String[] hashes, Map<String, String> sources, int from, int to) {
+        if (from == to) {
+            return;
+        }
+        Map<String, String> options = getCompilerOptions();
+        for (int i = from; i < to; i++) {
+            ASTParser parser = newParser(options, methodBodies);
+            parser.setSource(sources.get(hashes[i]).toCharArray());
+            register(hashes[i], (CompilationUnit) parser.createAST(null));
+        }
+    }
+
+    private CompilationUnit register(String hash, CompilationUnit unit) {
+        // two threads may parse the same source, only the first unit is kept
+        CompilationUnit previous = units.putIfAbsent(hash, unit);
+        if (previous != null) {
+            return previous;
+        }
+        parsed.incrementAndGet();
+        return unit;
+    }
+
+    /**
+     * @return the unit of the source from the registry, or parsed on its own if registry is null
+     */
+    public static CompilationUnit getCompilationUnit(CompilationUnitRegistry registry, String javaSource) {
+        return registry == null ? parse(javaSource) : registry.getCompilationUnit(javaSource);
+    }
+
+    public static CompilationUnit parse(String javaSource) {
+        ASTParser parser = newParser(getCompilerOptions(), true);
+        parser.setSource(javaSource.toCharArray());
+        return (CompilationUnit) parser.createAST(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> getCompilerOptions() {
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.VERSION_1_7, options);
+        return options;
+    }
+
+    private static ASTParser newParser(Map<String, String> options, boolean methodBodies) {
+        ASTParser parser = ASTParser.newParser(AST.JLS4);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(options);
+        parser.setResolveBindings(false);
+        parser.setIgnoreMethodBodies(!methodBodies);
+        return parser;
+    }
+
+    public boolean hasMethodBodies() {
+        return methodBodies;
+    }
+
+    /**
+     * @return number of distinct sources parsed so far
+     */
+    public int getNumParsed() {
+        return parsed.get();
+    }
+
+    public int size() {
+        return units.size();
+    }
+
+    /**
+     * Drops every unit, once no consumer needs the ASTs anymore.
+     */
+    public void clear() {
+        units.clear();
+    }
+
+    private class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] hashes;
+        private final Map<String, String> sources;
+        private final int from;
+        private final int to;
+
+        BatchTask(String[] hashes, Map<String, String> sources, int from, int to) {
+            this.hashes = hashes;
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                parseBatch(hashes, sources, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(hashes, sources, from, middle), new BatchTask(hashes, sources, middle, to));
+            }
+        }
+    }
+}
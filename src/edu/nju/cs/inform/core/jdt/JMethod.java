@@ -12,6 +12,9 @@ public class JMethod {
     private String doc;
     private List<String> paraNameList;
     private String methodBody;
+    // methodName with the parameter types, unique among overloads
+    private String signature;
+    private String signatureCode;
 
     public JMethod() {
         paraNameList = new ArrayList<>();
@@ -72,4 +75,23 @@ public class JMethod {
     public String getMethodBody() {
         return methodBody;
     }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
+    /**
+     * @return modifiers, parameters and body the fingerprint of this overload is taken from
+     */
+    public String getSignatureCode() {
+        return signatureCode;
+    }
+
+    public void setSignatureCode(String signatureCode) {
+        this.signatureCode = signatureCode;
+    }
 }
@@ -6,8 +6,10 @@ import org.eclipse.jdt.core.dom.*;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,7 +19,7 @@ import java.util.regex.Pattern;
 public class JavaElementsParser {
 
     private final CompilationUnit root;
-    private TypeDeclaration typeDec;
+    private AbstractTypeDeclaration typeDec;
     /*
     Struct elements in a java file
      */
@@ -36,14 +38,22 @@ public class JavaElementsParser {
     private Map<String, String> methodNameContentMap;
     private String classContent;
 
+    // declaration code of every method and field, overloads of a method are appended in order
+    private Map<String, StringBuilder> elementCode;
+
     public JavaElementsParser(String javaSource, SourceCodeElements sourceCodeElements) {
+        this(javaSource, sourceCodeElements, null);
+    }
+
+    /**
+     * @param registry registry the AST of the source is taken from, or null to parse the source here
+     */
+    public JavaElementsParser(String javaSource, SourceCodeElements sourceCodeElements, CompilationUnitRegistry registry) {
 
         this.strContent = extractStrContent(javaSource);
         this.sourceCodeElements = sourceCodeElements;
 
-        ASTParser parsert = ASTParser.newParser(AST.JLS3);
-        parsert.setSource(javaSource.toCharArray());
-        this.root = (CompilationUnit) parsert.createAST(null);
+        this.root = CompilationUnitRegistry.getCompilationUnit(registry, javaSource);
 
         packageName = root.getPackage().getName().getFullyQualifiedName();
         sourceCodeElements.addPackage(packageName);
@@ -51,28 +61,44 @@ public class JavaElementsParser {
 
         List types = root.types();
 
-        if (!types.isEmpty()) {
-            // types.get(0) is the first class in this file, in most case is the public class
-            this.typeDec = (TypeDeclaration) types.get(0);
+        for (Object type : types) {
+            // classes, interfaces, enums and annotation types
+            parseType((AbstractTypeDeclaration) type, ((AbstractTypeDeclaration) type).getName().toString());
+        }
 
-            className = typeDec.getName().toString();
-            sourceCodeElements.addClass(packageName + "." + className);
+        if (types.isEmpty()) {
+            System.out.println(("No Class exists in this java file"));
+            return;
+        }
+    }
+
+    /**
+     * Parses a type and then its member types, a member type is named like the binary name
+     * Outer$Inner. Enum constants are modeled as fields, annotation type members as methods.
+     */
+    private void parseType(AbstractTypeDeclaration type, String name) {
+        this.typeDec = type;
+        className = name;
+        sourceCodeElements.addClass(packageName + "." + className);
 //            System.out.println(" packageName + className = " + packageName + "." + className );
 //            sourceCodeElements.addClass(className);
 
-            if (typeDec.getJavadoc() != null) {
+        if (typeDec.getJavadoc() != null) {
 
-                classDoc = typeDec.getJavadoc().toString();
-            } else {
-                classDoc = "";
-            }
+            classDoc = typeDec.getJavadoc().toString();
+        } else {
+            classDoc = "";
+        }
 
-            sourceCodeElements.addClassComments(packageName + "." + className, classDoc);
+        sourceCodeElements.addClassComments(packageName + "." + className, classDoc);
 
-            parseClass();
-        } else {
-            System.out.println(("No Class exists in this java file"));
-            return;
+        parseClass();
+
+        for (Object declaration : type.bodyDeclarations()) {
+            if (declaration instanceof AbstractTypeDeclaration) {
+                AbstractTypeDeclaration memberType = (AbstractTypeDeclaration) declaration;
+                parseType(memberType, name + "$" + memberType.getName().toString());
+            }
         }
     }
 
@@ -97,8 +123,23 @@ public class JavaElementsParser {
     private void parseClass() {
 //        System.out.printf("Parsing %s...\n", className);
         jFieldList = new ArrayList<>();
+        elementCode = new LinkedHashMap<>();
+
+        if (typeDec instanceof EnumDeclaration) {
+            for (Object constant : ((EnumDeclaration) typeDec).enumConstants()) {
+                JField jf = new JField();
+                jf.setTypeName(className);
+                jf.setFieldName(((EnumConstantDeclaration) constant).getName().toString());
+                jFieldList.add(jf);
+                appendElementCode(packageName + "." + className + "." + jf.getFieldName(), constant.toString());
+            }
+        }
 
-        for (FieldDeclaration field : typeDec.getFields()) {
+        for (Object declaration : typeDec.bodyDeclarations()) {
+            if (!(declaration instanceof FieldDeclaration)) {
+                continue;
+            }
+            FieldDeclaration field = (FieldDeclaration) declaration;
             String type = field.getType().toString();
 
             for (Object fragment : field.fragments()) {
@@ -114,6 +155,8 @@ public class JavaElementsParser {
 
                 jf.setFieldName(handleFiledFormat(fieldName));
                 jFieldList.add(jf);
+                appendElementCode(packageName + "." + className + "." + jf.getFieldName(),
+                        field.getModifiers() + " " + type + " " + fragment);
             }
         }
 
@@ -129,9 +172,12 @@ public class JavaElementsParser {
             sb.append(field.getFieldName());
             sb.append(" ");
             sourceCodeElements.addField(packageName + "." + className + "." + field.getFieldName());
+            addFingerprint(packageName + "." + className + "." + field.getFieldName());
 //            sourceCodeElements.addField(className + "." + field.getFieldName());
         }
 
+        // overloads share the method name, their bodies, docs and parameters are joined under it
+        Set<String> overloads = new LinkedHashSet<>();
         for (JMethod method : jMethodList) {
             sb.append(method.getMethodName());
             sb.append(" ");
@@ -146,9 +192,25 @@ public class JavaElementsParser {
 //            sourceCodeElements.addMethod(packageName + "." + className + "." + method.getMethodName());
 //            System.out.println(" packageName  + className + method.getMethodName() = " + packageName + "." + className + "." + method.getMethodName() );
             sourceCodeElements.addMethod(method.getMethodName());
-            sourceCodeElements.addMethodBody(method.getMethodName(),method.getMethodBody());
-            sourceCodeElements.addMethodComments(method.getMethodName(), method.getDoc());
-            sourceCodeElements.addMethodParameters(method.getMethodName(), parameters.toString());
+            sourceCodeElements.addMethodSignature(method.getSignature());
+            sourceCodeElements.addFingerprint(method.getSignature(), SourceCodeElements.fingerprint(method.getSignatureCode()));
+
+            if (overloads.add(method.getMethodName())) {
+                sourceCodeElements.addMethodBody(method.getMethodName(), method.getMethodBody());
+                sourceCodeElements.addMethodComments(method.getMethodName(), method.getDoc());
+                sourceCodeElements.addMethodParameters(method.getMethodName(), parameters.toString());
+            } else {
+                sourceCodeElements.addMethodBody(method.getMethodName(),
+                        sourceCodeElements.getMethodBody(method.getMethodName()) + "\n" + method.getMethodBody());
+                sourceCodeElements.addMethodComments(method.getMethodName(),
+                        sourceCodeElements.getMethodComments(method.getMethodName()) + " " + method.getDoc());
+                sourceCodeElements.addMethodParameters(method.getMethodName(),
+                        sourceCodeElements.getMethodParameters(method.getMethodName()) + parameters.toString());
+            }
+        }
+
+        for (String methodName : overloads) {
+            addFingerprint(methodName);
         }
 
         sb.append("\n");
@@ -178,30 +240,91 @@ public class JavaElementsParser {
 
         jMethodList = new ArrayList<>();
 
-        for (MethodDeclaration method : typeDec.getMethods()) {
+        for (Object declaration : typeDec.bodyDeclarations()) {
+            if (declaration instanceof AnnotationTypeMemberDeclaration) {
+                parseAnnotationTypeMember((AnnotationTypeMemberDeclaration) declaration);
+                continue;
+            }
+            if (!(declaration instanceof MethodDeclaration)) {
+                continue;
+            }
+            MethodDeclaration method = (MethodDeclaration) declaration;
             JMethod jm = new JMethod();
             jm.setClassName(className);
             String myMethodName = method.getName().toString();
-            if (myMethodName.equals(className)) {
+            if (method.isConstructor()) {
                 myMethodName = "<init>";
             }
             jm.setMethodName(packageName + "." + className + "." + myMethodName);
             jm.setMethodBody(method.getBody()==null?"null":method.getBody().toString());
+            StringBuilder signature = new StringBuilder(jm.getMethodName());
+            signature.append("(");
             for (Object obj : method.parameters()) {
-                SimpleName paraName = ((SingleVariableDeclaration) obj).getName();
+                SingleVariableDeclaration parameter = (SingleVariableDeclaration) obj;
+                SimpleName paraName = parameter.getName();
                 jm.addParaName(paraName.toString());
+
+                if (signature.charAt(signature.length() - 1) != '(') {
+                    signature.append(",");
+                }
+                signature.append(parameter.getType().toString());
+                for (int i = 0; i < parameter.getExtraDimensions(); i++) {
+                    signature.append("[]");
+                }
+                if (parameter.isVarargs()) {
+                    signature.append("...");
+                }
             }
+            signature.append(")");
+            jm.setSignature(signature.toString());
             if (method.getJavadoc() != null) {
                 jm.setDoc(method.getJavadoc().toString());
             }
 //            System.out.println(jm);
                     methodNameContentMap.put(className + "#" + jm.getMethodName(), jm.toString());
             jMethodList.add(jm);
+            jm.setSignatureCode(method.getModifiers() + " " + method.parameters() + " " + jm.getMethodBody());
+            appendElementCode(jm.getMethodName(), jm.getSignatureCode());
         }
 
 //        System.out.printf("%d methods in %s.\n", jMethodList.size(), className);
     }
 
+    /**
+     * A member like String value() default ""; is a method without parameters or body
+     */
+    private void parseAnnotationTypeMember(AnnotationTypeMemberDeclaration member) {
+        JMethod jm = new JMethod();
+        jm.setClassName(className);
+        jm.setMethodName(packageName + "." + className + "." + member.getName().toString());
+        jm.setMethodBody("null");
+        jm.setSignature(jm.getMethodName() + "()");
+        if (member.getJavadoc() != null) {
+            jm.setDoc(member.getJavadoc().toString());
+        }
+        methodNameContentMap.put(className + "#" + jm.getMethodName(), jm.toString());
+        jMethodList.add(jm);
+        jm.setSignatureCode(member.getModifiers() + " " + member.getType() + " " + member.getDefault());
+        appendElementCode(jm.getMethodName(), jm.getSignatureCode());
+    }
+
+    private void appendElementCode(String element, String code) {
+        StringBuilder sb = elementCode.get(element);
+        if (sb == null) {
+            sb = new StringBuilder();
+            elementCode.put(element, sb);
+        }
+        sb.append(code);
+        sb.append("\n");
+    }
+
+    /**
+     * Body and field initializer are printed from the AST, the fingerprint ignores comments and layout
+     */
+    private void addFingerprint(String element) {
+        sourceCodeElements.addFingerprint(element, SourceCodeElements.fingerprint(elementCode.get(element).toString()));
+    }
+
     private String extractPureMethodName(String name) {
         String tokens[] = name.split("\\.");
         return tokens[tokens.length - 1];
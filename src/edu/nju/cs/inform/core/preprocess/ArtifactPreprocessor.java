@@ -1,31 +1,201 @@
 package edu.nju.cs.inform.core.preprocess;
 
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+import edu.nju.cs.inform.core.type.TokenizedArtifact;
 import edu.nju.cs.inform.util.AppConfigure;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Created by niejia on 15/2/22.
  */
 public class ArtifactPreprocessor {
 
+    // to be raised whenever a pipeline changes its output, stored preprocessed texts are keyed on it
+    public static final int VERSION = 1;
+
     public static String handlePureTextFile(String str) {
-        str = CleanUp.chararctorClean(str);
-        str = CleanUp.lengthFilter(str, 3);
-        str = CleanUp.tolowerCase(str);
-        str = Snowball.stemming(str);
-        str = Stopwords.remover(str, AppConfigure.Stopwords);
-        return str;
+        return pureTextPipeline().process(str);
     }
 
     public static String handleJavaFile(String str) {
-        str = CleanUp.chararctorClean(str);
-        str = CamelCase.split(str);
-        str = SentenceSplitter.process(str);
+        return javaPipeline().process(str);
+    }
+
+    /**
+     * handlePureTextFile as term ids of the vocabulary
+     */
+    public static TokenizedArtifact handlePureTextFile(String id, String str, TermVocabulary vocabulary) {
+        return toArtifact(id, pureTextPipeline().tokenize(str), vocabulary);
+    }
+
+    /**
+     * handleJavaFile as term ids of the vocabulary
+     */
+    public static TokenizedArtifact handleJavaFile(String id, String str, TermVocabulary vocabulary) {
+        return toArtifact(id, javaPipeline().tokenize(str), vocabulary);
+    }
+
+    static TokenBuffer tokenize(String str, boolean javaFile) {
+        return (javaFile ? javaPipeline() : pureTextPipeline()).tokenize(str);
+    }
+
+    /**
+     * @return key of what handlePureTextFile gives: the pipeline version and the requirement stop words
+     */
+    public static String getPureTextSettings() {
+        return VERSION + ":" + Stopwords.getContentHash(AppConfigure.RequirementStopwords);
+    }
+
+    /**
+     * @return key of what handleJavaFile gives: the pipeline version and the code stop words
+     */
+    public static String getJavaSettings() {
+        return VERSION + ":" + Stopwords.getContentHash(AppConfigure.CodeStopwords);
+    }
+
+    // a pipeline keeps buffers between calls, every thread reuses its own pair
+    private static final ThreadLocal<Pipelines> pipelines = new ThreadLocal<Pipelines>() {
+        @Override
+        protected Pipelines initialValue() {
+            return new Pipelines();
+        }
+    };
+
+    private static TokenPipeline pureTextPipeline() {
+        return pipelines.get().pureText();
+    }
+
+    private static TokenPipeline javaPipeline() {
+        return pipelines.get().java();
+    }
+
+    /**
+     * The two pipelines of one thread, each rebuilt when its stop-word list is configured to another file
+     */
+    private static class Pipelines {
+        private TokenPipeline pureText;
+        private String pureTextStopwords;
+        private TokenPipeline java;
+        private String javaStopwords;
+
+        TokenPipeline pureText() {
+            String stopwords = AppConfigure.RequirementStopwords;
+            if (pureText == null || !stopwords.equals(pureTextStopwords)) {
+                pureText = new TokenPipeline(TokenPipeline.lengthFilter(3), TokenPipeline.lowerCaseFilter(),
+                        TokenPipeline.stemFilter(), TokenPipeline.stopwordFilter(stopwords));
+                pureTextStopwords = stopwords;
+            }
+            return pureText;
+        }
+
+        TokenPipeline java() {
+            String stopwords = AppConfigure.CodeStopwords;
+            if (java == null || !stopwords.equals(javaStopwords)) {
+                java = new TokenPipeline(TokenPipeline.camelCaseFilter(), TokenPipeline.identifierWordFilter(),
+                        TokenPipeline.lowerCaseFilter(), TokenPipeline.stemFilter(),
+                        TokenPipeline.stopwordFilter(stopwords));
+                javaStopwords = stopwords;
+            }
+            return java;
+        }
+    }
+
+    /**
+     * handlePureTextFile over every artifact, see preprocess
+     */
+    public static ArtifactsCollection handlePureTextFiles(ArtifactsCollection collection, ForkJoinPool pool) {
+        return preprocess(collection, false, pool);
+    }
+
+    /**
+     * handleJavaFile over every artifact, see preprocess
+     */
+    public static ArtifactsCollection handleJavaFiles(ArtifactsCollection collection, ForkJoinPool pool) {
+        return preprocess(collection, true, pool);
+    }
+
+    /**
+     * handlePureTextFiles giving TokenizedArtifacts, see tokenize
+     */
+    public static ArtifactsCollection handlePureTextFiles(ArtifactsCollection collection, TermVocabulary vocabulary, ForkJoinPool pool) {
+        return tokenize(collection, false, vocabulary, pool);
+    }
+
+    /**
+     * handleJavaFiles giving TokenizedArtifacts, see tokenize
+     */
+    public static ArtifactsCollection handleJavaFiles(ArtifactsCollection collection, TermVocabulary vocabulary, ForkJoinPool pool) {
+        return tokenize(collection, true, vocabulary, pool);
+    }
+
+    /**
+     * @param pool pool the artifacts are spread over, or null to preprocess them on the calling thread
+     * @return new artifacts with the preprocessed texts, in the insertion order of the collection
+     */
+    private static ArtifactsCollection preprocess(ArtifactsCollection collection, boolean javaFile, ForkJoinPool pool) {
+        String[] ids = collection.keySet().toArray(new String[collection.size()]);
+        String[] results = new String[ids.length];
+        run(collection, ids, javaFile, pool, results, null);
+
+        ArtifactsCollection preprocessed = new ArtifactsCollection();
+        for (int i = 0; i < ids.length; i++) {
+            preprocessed.put(ids[i], new Artifact(ids[i], results[i]));
+        }
+        return preprocessed;
+    }
+
+    /**
+     * Like preprocess, the tokens of every artifact are interned into the vocabulary on the
+     * calling thread in collection order, so the term ids never depend on scheduling.
+     */
+    private static ArtifactsCollection tokenize(ArtifactsCollection collection, boolean javaFile, TermVocabulary vocabulary, ForkJoinPool pool) {
+        String[] ids = collection.keySet().toArray(new String[collection.size()]);
+        TokenBuffer[] tokens = new TokenBuffer[ids.length];
+        run(collection, ids, javaFile, pool, null, tokens);
+
+        ArtifactsCollection preprocessed = new ArtifactsCollection();
+        for (int i = 0; i < ids.length; i++) {
+            preprocessed.put(ids[i], toArtifact(ids[i], tokens[i], vocabulary));
+        }
+        return preprocessed;
+    }
+
+    private static void run(ArtifactsCollection collection, String[] ids, boolean javaFile, ForkJoinPool pool,
+                            String[] results, TokenBuffer[] tokens) {
+        String[] texts = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            texts[i] = TokenizedArtifact.getText(collection.get(ids[i]));
+        }
+
+        if (pool == null) {
+            PreprocessTask.process(texts, results, tokens, javaFile, 0, ids.length);
+        } else if (ids.length > 0) {
+            pool.invoke(new PreprocessTask(texts, results, tokens, javaFile, 0, ids.length));
+        }
+    }
 
-//        str = CleanUp.lengthFilter(str, 3);
+    /**
+     * The term ids are the tokens text.split(" ") would give for the space-joined tokens, see
+     * TokenBuffer.resplit, the text itself is only joined when asked for
+     */
+    private static TokenizedArtifact toArtifact(String id, TokenBuffer tokens, TermVocabulary vocabulary) {
+        if (tokens.size() == 0) {
+            return new TokenizedArtifact(id, vocabulary, new int[]{vocabulary.intern("")}, new int[]{-1});
+        }
+        int size = tokens.size();
+        while (size > 0 && tokens.get(size - 1).isEmpty()) {
+            size--;
+        }
 
-        str = CleanUp.tolowerCase(str);
-        str = Snowball.stemming(str);
-        str = Stopwords.remover(str, AppConfigure.Stopwords);
-        return str;
+        int[] termIds = new int[size];
+        int[] positions = new int[size];
+        for (int k = 0; k < size; k++) {
+            termIds[k] = vocabulary.intern(tokens.get(k));
+            positions[k] = tokens.getOrigin(k);
+        }
+        return new TokenizedArtifact(id, vocabulary, termIds, positions);
     }
-}
\ No newline at end of file
+}
@@ -9,19 +9,30 @@ public class CamelCase {
     public static String split(String input) {
         String words[] = input.split(" ");
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(input.length() * 2);
 
         for (String word : words) {
-            for (String cc : splitCamelCase(word)) {
-                sb.append(cc);
+            // same pieces as word.split("(?<!^)(?=[A-Z])")
+            int start = 0;
+            do {
+                int end = pieceEnd(word, start);
+                sb.append(word, start, end);
                 sb.append(" ");
-            }
+                start = end;
+            } while (start < word.length());
         }
 
         return sb.toString();
     }
 
-    private static String[] splitCamelCase(String s) {
-        return s.split("(?<!^)(?=[A-Z])");
+    /**
+     * @return position of the next upper case letter after start, where the piece starting at start ends
+     */
+    static int pieceEnd(String word, int start) {
+        int i = start + 1;
+        while (i < word.length() && !(word.charAt(i) >= 'A' && word.charAt(i) <= 'Z')) {
+            i++;
+        }
+        return Math.min(i, word.length());
     }
 }
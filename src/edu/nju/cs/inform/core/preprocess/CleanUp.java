@@ -1,27 +1,50 @@
 package edu.nju.cs.inform.core.preprocess;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Created by niejia on 15/2/22.
  */
 public class CleanUp {
 
+    /**
+     * Keeps the runs of [a-z|A-Z]+, each followed by a space. The '|' is part of the character class.
+     */
     public static String chararctorClean(String input) {
 
-        StringBuilder sb = new StringBuilder();
-
-        Pattern p = Pattern.compile("[a-z|A-Z]+");
-        Matcher m = p.matcher(input);
+        StringBuilder sb = new StringBuilder(input.length() + 1);
 
-        while (m.find()) {
-            sb.append(m.group().trim());
+        int start = cleanRunStart(input, 0);
+        while (start < input.length()) {
+            int end = cleanRunEnd(input, start);
+            sb.append(input, start, end);
             sb.append(" ");
+            start = cleanRunStart(input, end);
         }
         return sb.toString();
     }
 
+    /**
+     * @return position of the first character of a run at or after from, or the length of the input
+     */
+    static int cleanRunStart(String input, int from) {
+        int i = from;
+        while (i < input.length() && !isCleanChar(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static int cleanRunEnd(String input, int start) {
+        int i = start;
+        while (i < input.length() && isCleanChar(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isCleanChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '|';
+    }
+
     public static String lengthFilter(String input, int len) {
         StringBuilder sb = new StringBuilder();
 
@@ -0,0 +1,57 @@
+package edu.nju.cs.inform.core.preprocess;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Preprocesses a range of texts, splitting the range across a ForkJoinPool.
+ * Every result is written into the slot of its input, so the order never depends on scheduling.
+ */
+class PreprocessTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // below this many texts a range is processed on the current worker
+    private static final int THRESHOLD = 4;
+
+    private final String[] texts;
+    private final String[] results;
+    private final TokenBuffer[] tokens;
+    private final boolean javaFile;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param results slots of the preprocessed texts, or null
+     * @param tokens slots of the tokens, used when results is null
+     */
+    PreprocessTask(String[] texts, String[] results, TokenBuffer[] tokens, boolean javaFile, int from, int to) {
+        this.texts = texts;
+        this.results = results;
+        this.tokens = tokens;
+        this.javaFile = javaFile;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= THRESHOLD) {
+            process(texts, results, tokens, javaFile, from, to);
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new PreprocessTask(texts, results, tokens, javaFile, from, middle),
+                    new PreprocessTask(texts, results, tokens, javaFile, middle, to));
+        }
+    }
+
+    static void process(String[] texts, String[] results, TokenBuffer[] tokens, boolean javaFile, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (results == null) {
+                tokens[i] = ArtifactPreprocessor.tokenize(texts[i], javaFile);
+            } else {
+                results[i] = javaFile ? ArtifactPreprocessor.handleJavaFile(texts[i])
+                        : ArtifactPreprocessor.handlePureTextFile(texts[i]);
+            }
+        }
+    }
+}
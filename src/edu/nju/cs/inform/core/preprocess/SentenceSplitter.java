@@ -1,8 +1,6 @@
 package edu.nju.cs.inform.core.preprocess;
 
 import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by niejia on 15/12/21.
@@ -12,7 +10,6 @@ public class SentenceSplitter {
     private SentenceSplitter() {}
 
     private static final String DELIM = " .,:;'\"[]{})(-_=+~!@#$%^&*<>\n\t\r1234567890";
-    private static final String SPLIT_REGEX = "[A-Z][a-z]+|[a-z]+|[A-Z]+";
 
     /**
      * Sentence splitter process input in such a way, that any token with camel cases are
@@ -27,17 +24,56 @@ public class SentenceSplitter {
 
         while (st.hasMoreTokens()) {
             String tok = st.nextToken();
-            Pattern p = Pattern.compile(SPLIT_REGEX);
-            Matcher m = p.matcher(tok);
-            boolean found = m.find();
-            while (found) {
-                String subStringFound = m.group();
-                if (1 < subStringFound.length()) {
-                    result.append(subStringFound + space);
+            int start = 0;
+            while (start < tok.length()) {
+                int end = wordEnd(tok, start);
+                if (end == start) {
+                    start++;
+                    continue;
                 }
-                found = m.find();
+                if (1 < end - start) {
+                    result.append(tok, start, end);
+                    result.append(space);
+                }
+                start = end;
             }
         }
         return result.toString();
     }
+
+    /**
+     * End of the match of [A-Z][a-z]+|[a-z]+|[A-Z]+ starting at start, or start if none starts there.
+     * The alternatives are tried in order and each is greedy, as the regex does.
+     */
+    static int wordEnd(String token, int start) {
+        int length = token.length();
+        char c = token.charAt(start);
+        if (isUpper(c) && start + 1 < length && isLower(token.charAt(start + 1))) {
+            int end = start + 1;
+            while (end < length && isLower(token.charAt(end))) {
+                end++;
+            }
+            return end;
+        }
+        if (isLower(c)) {
+            int end = start;
+            while (end < length && isLower(token.charAt(end))) {
+                end++;
+            }
+            return end;
+        }
+        int end = start;
+        while (end < length && isUpper(token.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
+    }
 }
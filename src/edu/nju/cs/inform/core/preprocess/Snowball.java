@@ -1,8 +1,6 @@
 package edu.nju.cs.inform.core.preprocess;
 
 
-import edu.nju.cs.inform.core.preprocess.snowball.EnglishStemmer;
-
 /**
  * Created by niejia on 15/2/23.
  */
@@ -13,12 +11,10 @@ public class Snowball {
 
         String words[] = input.split(" ");
 
-        EnglishStemmer stemmer = new EnglishStemmer();
+        StemCache stemCache = StemCache.getShared();
 
         for (String word : words) {
-            stemmer.setCurrent(word);
-            stemmer.stem();
-            sb.append(stemmer.getCurrent());
+            sb.append(stemCache.stem(word));
             sb.append(" ");
         }
 
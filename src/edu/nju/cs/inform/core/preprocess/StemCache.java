@@ -0,0 +1,91 @@
+package edu.nju.cs.inform.core.preprocess;
+
+import edu.nju.cs.inform.core.preprocess.snowball.EnglishStemmer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memo of surface form to Snowball English stem, safe to share between preprocessing threads.
+ *
+ * Identifiers repeat a lot across a codebase, so most tokens are answered by a hash lookup.
+ * The cache holds at most maxSize forms, it is emptied when it fills up so that a drifting
+ * vocabulary cannot grow it without bound.
+ */
+public class StemCache {
+
+    private static final int DEFAULT_MAX_SIZE = 200000;
+    private static final StemCache shared = new StemCache(DEFAULT_MAX_SIZE);
+
+    private final int maxSize;
+    private final ConcurrentMap<String, String> stems;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // EnglishStemmer keeps its state in fields, every thread stems with its own instance
+    private final ThreadLocal<EnglishStemmer> stemmers = new ThreadLocal<EnglishStemmer>() {
+        @Override
+        protected EnglishStemmer initialValue() {
+            return new EnglishStemmer();
+        }
+    };
+
+    public StemCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.stems = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the cache used by Snowball.stemming and the stem filter of TokenPipeline
+     */
+    public static StemCache getShared() {
+        return shared;
+    }
+
+    public String stem(String word) {
+        String stem = stems.get(word);
+        if (stem != null) {
+            hits.incrementAndGet();
+            return stem;
+        }
+        misses.incrementAndGet();
+
+        EnglishStemmer stemmer = stemmers.get();
+        stemmer.setCurrent(word);
+        stemmer.stem();
+        stem = stemmer.getCurrent();
+
+        if (stems.size() >= maxSize) {
+            stems.clear();
+        }
+        stems.put(word, stem);
+        return stem;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return stems.size();
+    }
+
+    /**
+     * Empties the cache and resets the statistics
+     */
+    public void clear() {
+        stems.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "StemCache size " + size() + ", hits " + getHits() + ", misses " + getMisses();
+    }
+}
@@ -1,31 +1,31 @@
 package edu.nju.cs.inform.core.preprocess;
 
+import edu.nju.cs.inform.util.ContentHash;
 import edu.nju.cs.inform.util._;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by niejia on 15/2/23.
  */
 public class Stopwords {
 
-    public static String remover(String input, String stopwordsPath) {
+    // every stop-word file is read once per JVM
+    private static final ConcurrentMap<String, Set<String>> loaded = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String> contentHashes = new ConcurrentHashMap<>();
 
-        String stopwords[] = _.readFile(stopwordsPath).split("\n");
+    public static String remover(String input, String stopwordsPath) {
 
-        // about\r remove that \r
-        for (int i = 0; i < stopwords.length; i++) {
-            stopwords[i] = stopwords[i].trim();
-        }
-        List<String> stopwordsList = Arrays.asList(stopwords);
+        Set<String> stopwords = getStopwords(stopwordsPath);
 
         String words[] = input.split(" ");
 
         StringBuilder sb = new StringBuilder();
 
         for (String word : words) {
-            if (!stopwordsList.contains(word)) {
+            if (!stopwords.contains(word)) {
                 sb.append(word);
                 sb.append(" ");
             } else {
@@ -34,4 +34,52 @@ public class Stopwords {
         }
         return sb.toString();
     }
+
+    /**
+     * @return the stop words of a file, one per line, as an immutable set shared by all callers
+     */
+    public static Set<String> getStopwords(String stopwordsPath) {
+        Set<String> stopwords = loaded.get(stopwordsPath);
+        if (stopwords == null) {
+            stopwords = readStopwords(stopwordsPath);
+            Set<String> previous = loaded.putIfAbsent(stopwordsPath, stopwords);
+            if (previous != null) {
+                stopwords = previous;
+            }
+        }
+        return stopwords;
+    }
+
+    /**
+     * @return hash of the stop words of a file, the same for the same words in any order or layout
+     */
+    public static String getContentHash(String stopwordsPath) {
+        String hash = contentHashes.get(stopwordsPath);
+        if (hash == null) {
+            List<String> sorted = new ArrayList<>(getStopwords(stopwordsPath));
+            Collections.sort(sorted);
+            StringBuilder sb = new StringBuilder();
+            for (String stopword : sorted) {
+                sb.append(stopword);
+                sb.append('\n');
+            }
+            hash = ContentHash.sha1(sb.toString());
+            contentHashes.putIfAbsent(stopwordsPath, hash);
+        }
+        return hash;
+    }
+
+    private static Set<String> readStopwords(String stopwordsPath) {
+        String content = _.readFile(stopwordsPath);
+        if (content == null) {
+            _.abort("Stop-words file doesn't exist: " + stopwordsPath);
+        }
+
+        Set<String> stopwords = new HashSet<>();
+        for (String stopword : content.split("\n")) {
+            // about\r remove that \r
+            stopwords.add(stopword.trim());
+        }
+        return Collections.unmodifiableSet(stopwords);
+    }
 }
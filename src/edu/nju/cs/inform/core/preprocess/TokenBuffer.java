@@ -0,0 +1,83 @@
+package edu.nju.cs.inform.core.preprocess;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of tokens that is cleared and refilled by every stage of a TokenPipeline.
+ *
+ * Every token also records its origin, the index of the letter run of the raw text it was cut
+ * from, set by setOrigin before the tokens of that run are added.
+ */
+public class TokenBuffer {
+
+    private String[] tokens = new String[64];
+    private int[] origins = new int[64];
+    private int size;
+    private int origin;
+
+    public void add(String token) {
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+            origins = Arrays.copyOf(origins, size * 2);
+        }
+        origins[size] = origin;
+        tokens[size++] = token;
+    }
+
+    public String get(int index) {
+        return tokens[index];
+    }
+
+    public int getOrigin(int index) {
+        return origins[index];
+    }
+
+    /**
+     * @param origin origin of the tokens added from now on
+     */
+    public void setOrigin(int origin) {
+        this.origin = origin;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(tokens, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Leaves the tokens that text.split(" ") would give for the space-joined tokens, the
+     * hand-over format of the string stages: trailing empty tokens are dropped, and no
+     * token at all becomes one empty token.
+     */
+    public void resplit() {
+        if (size == 0) {
+            origin = -1;
+            add("");
+            return;
+        }
+        while (size > 0 && tokens[size - 1].isEmpty()) {
+            tokens[--size] = null;
+        }
+    }
+
+    /**
+     * @return every token followed by a space
+     */
+    public String join() {
+        int length = size;
+        for (int i = 0; i < size; i++) {
+            length += tokens[i].length();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < size; i++) {
+            sb.append(tokens[i]);
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package edu.nju.cs.inform.core.preprocess;
+
+/**
+ * One stage of a TokenPipeline, turns every token into zero or more tokens.
+ */
+public interface TokenFilter {
+    void process(String token, TokenBuffer out);
+}
@@ -0,0 +1,165 @@
+package edu.nju.cs.inform.core.preprocess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming replacement of the chained String stages of ArtifactPreprocessor.
+ *
+ * The text is scanned once for runs of letters, the same tokens as CleanUp.chararctorClean,
+ * and the tokens are then passed through the filters between two reusable buffers instead of
+ * being joined and split again for every stage. The result is identical to running the
+ * corresponding String stages one after another.
+ *
+ * A pipeline keeps state between calls and must not be shared between threads.
+ */
+public class TokenPipeline {
+
+    private final List<TokenFilter> filters;
+    private TokenBuffer current = new TokenBuffer();
+    private TokenBuffer next = new TokenBuffer();
+
+    public TokenPipeline(TokenFilter... filters) {
+        this.filters = new ArrayList<>(Arrays.asList(filters));
+    }
+
+    public String process(String text) {
+        return run(text).join();
+    }
+
+    /**
+     * @return the tokens the last filter gives, in a new buffer the caller keeps. join() of the
+     * buffer is the result of process, so is resplit() with the tokens of process(text).split(" ")
+     */
+    public TokenBuffer tokenize(String text) {
+        TokenBuffer tokens = run(text);
+        current = new TokenBuffer();
+        return tokens;
+    }
+
+    private TokenBuffer run(String text) {
+        current.clear();
+        scanLetterRuns(text, current);
+
+        for (TokenFilter filter : filters) {
+            current.resplit();
+            next.clear();
+            for (int i = 0; i < current.size(); i++) {
+                next.setOrigin(current.getOrigin(i));
+                filter.process(current.get(i), next);
+            }
+
+            TokenBuffer swap = current;
+            current = next;
+            next = swap;
+        }
+        return current;
+    }
+
+    private static void scanLetterRuns(String text, TokenBuffer out) {
+        int run = 0;
+        int start = CleanUp.cleanRunStart(text, 0);
+        while (start < text.length()) {
+            int end = CleanUp.cleanRunEnd(text, start);
+            out.setOrigin(run++);
+            out.add(text.substring(start, end));
+            start = CleanUp.cleanRunStart(text, end);
+        }
+    }
+
+    /**
+     * CleanUp.lengthFilter, keeps tokens of at least the given length
+     */
+    public static TokenFilter lengthFilter(final int length) {
+        return new TokenFilter() {
+            @Override
+            public void process(String token, TokenBuffer out) {
+                if (token.length() >= length) {
+                    out.add(token);
+                }
+            }
+        };
+    }
+
+    /**
+     * CamelCase.split, cuts a token before every upper case letter but the first
+     */
+    public static TokenFilter camelCaseFilter() {
+        return new TokenFilter() {
+            @Override
+            public void process(String token, TokenBuffer out) {
+                int start = 0;
+                do {
+                    int end = CamelCase.pieceEnd(token, start);
+                    out.add(token.substring(start, end));
+                    start = end;
+                } while (start < token.length());
+            }
+        };
+    }
+
+    /**
+     * SentenceSplitter.process, keeps the matches of [A-Z][a-z]+|[a-z]+|[A-Z]+ longer than one letter
+     */
+    public static TokenFilter identifierWordFilter() {
+        return new TokenFilter() {
+            @Override
+            public void process(String token, TokenBuffer out) {
+                int start = 0;
+                while (start < token.length()) {
+                    int end = SentenceSplitter.wordEnd(token, start);
+                    if (end == start) {
+                        start++;
+                        continue;
+                    }
+                    if (end - start > 1) {
+                        out.add(token.substring(start, end));
+                    }
+                    start = end;
+                }
+            }
+        };
+    }
+
+    /**
+     * CleanUp.tolowerCase
+     */
+    public static TokenFilter lowerCaseFilter() {
+        return new TokenFilter() {
+            @Override
+            public void process(String token, TokenBuffer out) {
+                out.add(token.toLowerCase());
+            }
+        };
+    }
+
+    /**
+     * Snowball.stemming, through the shared StemCache
+     */
+    public static TokenFilter stemFilter() {
+        final StemCache stemCache = StemCache.getShared();
+        return new TokenFilter() {
+            @Override
+            public void process(String token, TokenBuffer out) {
+                out.add(stemCache.stem(token));
+            }
+        };
+    }
+
+    /**
+     * Stopwords.remover, over the shared set of Stopwords.getStopwords
+     */
+    public static TokenFilter stopwordFilter(String stopwordsPath) {
+        final Set<String> stopwords = Stopwords.getStopwords(stopwordsPath);
+        return new TokenFilter() {
+            @Override
+            public void process(String token, TokenBuffer out) {
+                if (!stopwords.contains(token)) {
+                    out.add(token);
+                }
+            }
+        };
+    }
+}
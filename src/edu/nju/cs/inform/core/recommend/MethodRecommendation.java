@@ -2,11 +2,14 @@ package edu.nju.cs.inform.core.recommend;
 
 
 import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.ir.KeywordsScorer;
 import edu.nju.cs.inform.core.ir.VSM_Keywords;
 import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
 import edu.nju.cs.inform.core.type.Artifact;
 import edu.nju.cs.inform.core.type.ArtifactsCollection;
 import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+import edu.nju.cs.inform.core.type.TokenizedArtifact;
 import edu.nju.cs.inform.core.relation.CallRelationGraph;
 import edu.nju.cs.inform.core.relation.graph.CodeVertex;
 import edu.nju.cs.inform.util.JavaElement;
@@ -41,6 +44,9 @@ public class MethodRecommendation {
 
         ArtifactsCollection elementCollection = codeElementsComparer.getChangedMethodsCollection();
         ArtifactsCollection codebaseCollection = codeElementsComparer.getPreprocessedNewVersionCodeCollection();
+        // codebase document frequencies are shared by every outdated requirement
+        KeywordsScorer keywordsScorer = new KeywordsScorer(codebaseCollection);
+        TermVocabulary vocabulary = new TermVocabulary();
 
         for (String outdatedReq : outdatedRequirements) {
             Set<String> codesAffectReq = findCodesAffectedReq(outdatedReq);
@@ -62,7 +68,7 @@ public class MethodRecommendation {
 
                 for (String e : elementsCollection) {
                     if (elementCollection.keySet().contains(e)) {
-                        involvedElements.put(e, new Artifact(e, ArtifactPreprocessor.handleJavaFile(e)));
+                        involvedElements.put(e, ArtifactPreprocessor.handleJavaFile(e, e, vocabulary));
                     }
                 }
             }
@@ -70,9 +76,9 @@ public class MethodRecommendation {
             List<Set<String>> callGroup = createCallGroups(callGraphForChangedPart, involvedElements.keySet());
 
             addMethodWithoutCallRelationIntoCallGroup(callGroup, involvedElements);
-            ArtifactsCollection changeGroupCollection = constructChangeGroupCollection(callGroup, involvedElements);
+            ArtifactsCollection changeGroupCollection = constructChangeGroupCollection(callGroup, involvedElements, vocabulary);
 
-            this.vsm_keywords = new VSM_Keywords(changeGroupCollection, codebaseCollection);
+            this.vsm_keywords = keywordsScorer.score(changeGroupCollection);
 
             Map<String, Double> methodScore = new LinkedHashMap<>();
 
@@ -142,44 +148,56 @@ public class MethodRecommendation {
         return null;
     }
 
-    private ArtifactsCollection constructChangeGroupCollection(List<Set<String>> callGroup, ArtifactsCollection codeElements) {
+    /**
+     * Joins the terms of the elements of every call group without their empty terms, the
+     * elements are separated by one empty term as the space-joined group text used to give.
+     */
+    private ArtifactsCollection constructChangeGroupCollection(List<Set<String>> callGroup, ArtifactsCollection codeElements,
+                                                               TermVocabulary vocabulary) {
 
         ArtifactsCollection changeGroupCollection = new ArtifactsCollection();
+        int emptyTerm = vocabulary.intern("");
 
         for (int i = 0; i < callGroup.size(); i++) {
             Set<String> elements = callGroup.get(i);
 
-            StringBuffer content = new StringBuffer();
+            // every term of every element, one separator per element, and one term for no elements
+            int capacity = 1;
             for (String e : elements) {
-//                System.out.println(" e = " + e );
-//                System.out.println(codeElements.get(e));
-                content.append(preprocessEmptyToken(codeElements.get(e).text));
-//                content.append(CleanUp.chararctorClean(codeElements.get(e).text));
+                capacity += ((TokenizedArtifact) codeElements.get(e)).getTermIds().length + 1;
+            }
+            int[] termIds = new int[capacity];
+            int size = 0;
+            StringBuilder content = new StringBuilder();
+            for (String e : elements) {
+                TokenizedArtifact element = (TokenizedArtifact) codeElements.get(e);
+                for (int termId : element.getTermIds()) {
+                    if (termId != emptyTerm) {
+                        termIds[size++] = termId;
+                        content.append(vocabulary.getTermName(termId));
+                        content.append(" ");
+                    }
+                }
+                termIds[size++] = emptyTerm;
                 content.append(" ");
             }
 
-            Artifact artifact = new Artifact("Group" + i, content.toString());
+            // split(" ") dropped the trailing empty terms, and gave a single one for no text at all
+            while (size > 0 && termIds[size - 1] == emptyTerm) {
+                size--;
+            }
+            if (elements.isEmpty()) {
+                termIds[size++] = emptyTerm;
+            }
+
+            Artifact artifact = new TokenizedArtifact("Group" + i, content.toString(), vocabulary,
+                    Arrays.copyOf(termIds, size), null);
             changeGroupCollection.put("Group" + i, artifact);
         }
 
         return changeGroupCollection;
     }
 
-    private String preprocessEmptyToken(String text) {
-        String[] tokens = text.split(" ");
-        StringBuffer sb = new StringBuffer();
-
-        for (int i = 0; i < tokens.length; i++) {
-            if (!tokens[i].equals("") && tokens[i].length() > 0) {
-                sb.append(tokens[i]);
-                sb.append(" ");
-            }
-        }
-
-        return sb.toString();
-    }
-
-
     public List<String> getMethodRank() {
         List<String> rank = new ArrayList<>();
         for (String s : sortedMethodScoreMap.keySet()) {
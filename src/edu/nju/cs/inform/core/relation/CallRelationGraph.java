@@ -30,7 +30,6 @@ public class CallRelationGraph extends RelationGraph {
 
         dirGraph = new DirectedSparseGraph<>();
         idCodeVertexMap = new LinkedHashMap<>();
-        nameCodeVertexMap = new LinkedHashMap<>();
 
         callEdgeScoreMap = new HashMap<>();
 
@@ -47,10 +46,15 @@ public class CallRelationGraph extends RelationGraph {
     }
 
     private void constructGraph(RelationInfo relationInfo) {
+        int maxId = 0;
+        for (Integer i : relationInfo.getVertexes().keySet()) {
+            maxId = Math.max(maxId, i);
+        }
+        idCodeVertexes = new CodeVertex[maxId + 1];
         for (Integer i : relationInfo.getVertexes().keySet()) {
             CodeVertex cv = new CodeVertex(i, relationInfo.getVertexNameById(i));
             idCodeVertexMap.put(i, cv);
-            nameCodeVertexMap.put(cv.getName(), cv);
+            idCodeVertexes[i] = cv;
             dirGraph.addVertex(cv);
         }
 
@@ -117,7 +121,7 @@ public class CallRelationGraph extends RelationGraph {
 
     public List<CodeEdge> getInEdges(String vertexName) {
         List<CodeEdge> classEdgeList = new ArrayList<>();
-        for (CodeEdge e : dirGraph.getInEdges(nameCodeVertexMap.get(vertexName))) {
+        for (CodeEdge e : dirGraph.getInEdges(getCodeVertexByName(vertexName))) {
             classEdgeList.add(e);
         }
 
@@ -126,7 +130,7 @@ public class CallRelationGraph extends RelationGraph {
 
     public List<CodeEdge> getOutEdges(String vertexName) {
         List<CodeEdge> classEdgeList = new ArrayList<>();
-        for (CodeEdge e : dirGraph.getOutEdges(nameCodeVertexMap.get(vertexName))) {
+        for (CodeEdge e : dirGraph.getOutEdges(getCodeVertexByName(vertexName))) {
             classEdgeList.add(e);
         }
         return classEdgeList;
@@ -143,7 +147,7 @@ public class CallRelationGraph extends RelationGraph {
 
     public List<CodeVertex> getNeighboursByCall(String vertexName) {
         List<CodeVertex> vertexesList = new ArrayList<>();
-        CodeVertex vertex = nameCodeVertexMap.get(vertexName);
+        CodeVertex vertex = getCodeVertexByName(vertexName);
 
         if (vertex == null) {
 //            System.out.println(vertexName + " haha");
@@ -162,7 +166,7 @@ public class CallRelationGraph extends RelationGraph {
 
     public List<CodeVertex> getChildrenByCall(String vertexName) {
         List<CodeVertex> vertexesList = new ArrayList<>();
-        CodeVertex vertex = nameCodeVertexMap.get(vertexName);
+        CodeVertex vertex = getCodeVertexByName(vertexName);
 
         if (dirGraph.getOutEdges(vertex) == null) {
             return vertexesList;
@@ -176,7 +180,7 @@ public class CallRelationGraph extends RelationGraph {
 
     public List<CodeVertex> getFathersByCall(String vertexName) {
         List<CodeVertex> vertexesList = new ArrayList<>();
-        CodeVertex vertex = nameCodeVertexMap.get(vertexName);
+        CodeVertex vertex = getCodeVertexByName(vertexName);
 
         // attention !!
         if (dirGraph.getInEdges(vertex) == null) {
@@ -17,7 +17,8 @@ public abstract class RelationGraph {
     protected final RelationInfo relationInfo;
 
     protected Map<Integer, CodeVertex> idCodeVertexMap;
-    protected Map<String, CodeVertex> nameCodeVertexMap;
+    // vertexes by id, a name is looked up once in the relation info and then by its id
+    protected CodeVertex[] idCodeVertexes;
 
     protected RelationGraph(RelationInfo relationInfo) {
         this.relationInfo = relationInfo;
@@ -51,7 +52,8 @@ public abstract class RelationGraph {
     }
 
     public CodeVertex getCodeVertexByName(String vertexName) {
-        return nameCodeVertexMap.get(vertexName);
+        Integer id = relationInfo.getVertexIdByName(vertexName);
+        return id == null || id >= idCodeVertexes.length ? null : idCodeVertexes[id];
     }
 
     public RelationInfo getRelationInfo() {
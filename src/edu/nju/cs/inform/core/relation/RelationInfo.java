@@ -5,9 +5,11 @@ import edu.nju.cs.inform.core.diff.CodeElementsComparer;
 import edu.nju.cs.inform.core.type.Granularity;
 import edu.nju.cs.inform.io.ChangedArtifacts;
 import edu.nju.cs.inform.core.jda.parser.ProjectCallRelationAnalyser;
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
 import edu.nju.cs.inform.core.relation.info.CallRelation;
 import edu.nju.cs.inform.core.relation.info.CallRelationList;
 import edu.nju.cs.inform.core.relation.info.RelationPair;
+import edu.nju.cs.inform.util.ElementSymbolTable;
 
 import java.io.File;
 import java.io.Serializable;
@@ -39,10 +41,13 @@ public class RelationInfo implements Serializable {
     private boolean isCompletedGraph;
 
     public RelationInfo(String callRelationSourcePath,boolean isExternalPackageEnable) {
-        this.granularity = Granularity.METHOD;
-        artifactNames = new LinkedHashSet<>();
-        this.isExternalPackageEnable = isExternalPackageEnable;
+        this(callRelationSourcePath, isExternalPackageEnable, null);
+    }
 
+    /**
+     * @param registry registry of the ASTs of a source directory, or null to parse the files here
+     */
+    public RelationInfo(String callRelationSourcePath, boolean isExternalPackageEnable, CompilationUnitRegistry registry) {
         Hashtable<String, Vector<String>> callGraphMap = null;
         Hashtable<String, String> superClassesTable = null;
         File file = new File(callRelationSourcePath);
@@ -52,10 +57,25 @@ public class RelationInfo implements Serializable {
             callGraphMap = JCallGraph.callGraphMap;
             superClassesTable = callGraph.superClasses;
         } else if (file.isDirectory()) {
-            ProjectCallRelationAnalyser analyser = new ProjectCallRelationAnalyser(callRelationSourcePath);
+            ProjectCallRelationAnalyser analyser = new ProjectCallRelationAnalyser(callRelationSourcePath, registry);
             callGraphMap = analyser.getCallGraphMap();
             superClassesTable = new Hashtable<>();
         }
+        build(callGraphMap, superClassesTable, isExternalPackageEnable);
+    }
+
+    /**
+     * @param analyser call relations of a source directory that were analysed already
+     */
+    public RelationInfo(ProjectCallRelationAnalyser analyser, boolean isExternalPackageEnable) {
+        build(analyser.buildCallGraphMap(), new Hashtable<String, String>(), isExternalPackageEnable);
+    }
+
+    private void build(Hashtable<String, Vector<String>> callGraphMap, Hashtable<String, String> superClassesTable,
+                       boolean isExternalPackageEnable) {
+        this.granularity = Granularity.METHOD;
+        artifactNames = new LinkedHashSet<>();
+        this.isExternalPackageEnable = isExternalPackageEnable;
 
         for (String s : superClassesTable.keySet()) {
             if (callGraphMap.containsKey(s)) {
@@ -199,11 +219,19 @@ public class RelationInfo implements Serializable {
 
             JCallGraph newCallGraph = new JCallGraph(newVersionCallRelationSource);
             newCallGraphMap = JCallGraph.callGraphMap;
+        } else if (codeElementsComparer.getOldVersionCallRelations() != null
+                && oldVersionCallRelationSource.equals(codeElementsComparer.getOldVersionCodeDirPath())
+                && newVersionCallRelationSource.equals(codeElementsComparer.getNewVersionCodeDirPath())) {
+            // analysed by the comparer while the ASTs were alive
+            oldCallGraphMap = codeElementsComparer.getOldVersionCallRelations().buildCallGraphMap();
+            newCallGraphMap = codeElementsComparer.getNewVersionCallRelations().buildCallGraphMap();
         } else if (oldFile.isDirectory() && newFile.isDirectory()) {
-            ProjectCallRelationAnalyser analyserOld = new ProjectCallRelationAnalyser(oldVersionCallRelationSource);
+            ProjectCallRelationAnalyser analyserOld = new ProjectCallRelationAnalyser(oldVersionCallRelationSource,
+                    codeElementsComparer.getCompilationUnitRegistry());
             oldCallGraphMap = analyserOld.getCallGraphMap();
 
-            ProjectCallRelationAnalyser analyserNew = new ProjectCallRelationAnalyser(newVersionCallRelationSource);
+            ProjectCallRelationAnalyser analyserNew = new ProjectCallRelationAnalyser(newVersionCallRelationSource,
+                    codeElementsComparer.getCompilationUnitRegistry());
             newCallGraphMap = analyserNew.getCallGraphMap();
         }
         if (!concernedModifiedArtifact) {
@@ -265,7 +293,10 @@ public class RelationInfo implements Serializable {
         vertexNameIdMap = new LinkedHashMap<>();
 
         int id = 1;
-        for (String name : artifactNames) {
+        ElementSymbolTable symbols = codeElementsComparer.getSymbols();
+        for (String artifactName : artifactNames) {
+            // vertex names share the instances of the code elements of the run
+            String name = symbols.canonical(artifactName);
             vertexIdNameMap.put(id, name);
             vertexNameIdMap.put(name, id);
             id++;
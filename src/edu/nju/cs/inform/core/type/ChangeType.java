@@ -4,5 +4,5 @@ package edu.nju.cs.inform.core.type;
  * Created by niejia on 16/3/15.
  */
 public enum ChangeType {
-    Added, Removed, Unchanged
+    Added, Removed, Modified, Unchanged
 }
@@ -0,0 +1,315 @@
+package edu.nju.cs.inform.core.type;
+
+import java.util.*;
+
+/**
+ * SimilarityMatrix backed by one flat float[] of sources x targets.
+ *
+ * Artifacts are addressed by dense int ids in the order they were given, and a score is a
+ * primitive float instead of a boxed Double inside nested maps. Missing links are stored as NaN.
+ * The SimilarityMatrix methods are overridden on top of the flat store, so code written against
+ * SimilarityMatrix keeps working; forEachLink and topTargets iterate without allocating links.
+ * The inherited link maps stay empty, copying the matrix into a SimilarityMatrix builds them.
+ */
+public class CompactSimilarityMatrix extends SimilarityMatrix {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<String> sourceIndex;
+    private List<String> targetIndex;
+    private Map<String, Integer> sourceIndexLookup;
+    private Map<String, Integer> targetIndexLookup;
+
+    private float[] scores;
+
+    public CompactSimilarityMatrix(List<String> sourceArtifactIds, List<String> targetArtifactIds) {
+        super();
+        this.sourceIndex = new ArrayList<>(sourceArtifactIds);
+        this.targetIndex = new ArrayList<>(targetArtifactIds);
+        this.sourceIndexLookup = new HashMap<>();
+        this.targetIndexLookup = new HashMap<>();
+        for (int i = 0; i < sourceIndex.size(); i++) {
+            sourceIndexLookup.put(sourceIndex.get(i), i);
+        }
+        for (int j = 0; j < targetIndex.size(); j++) {
+            targetIndexLookup.put(targetIndex.get(j), j);
+        }
+
+        long size = (long) sourceIndex.size() * targetIndex.size();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("%d sources x %d targets don't fit in a compact matrix",
+                    sourceIndex.size(), targetIndex.size()));
+        }
+        this.scores = new float[(int) size];
+        Arrays.fill(scores, Float.NaN);
+    }
+
+    public int NumSources() {
+        return sourceIndex.size();
+    }
+
+    public int NumTargets() {
+        return targetIndex.size();
+    }
+
+    public String getSourceArtifactId(int index) {
+        return sourceIndex.get(index);
+    }
+
+    public String getTargetArtifactId(int index) {
+        return targetIndex.get(index);
+    }
+
+    /**
+     * @return the index of the artifact, or -1 if it is not a source of this matrix
+     */
+    public int getSourceIndex(String sourceArtifactId) {
+        Integer index = sourceIndexLookup.get(sourceArtifactId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the index of the artifact, or -1 if it is not a target of this matrix
+     */
+    public int getTargetIndex(String targetArtifactId) {
+        Integer index = targetIndexLookup.get(targetArtifactId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the score of the link, NaN if the link has not been set
+     */
+    public float getScore(int sourceIndex, int targetIndex) {
+        return scores[sourceIndex * this.targetIndex.size() + targetIndex];
+    }
+
+    public void setScore(int sourceIndex, int targetIndex, float score) {
+        scores[sourceIndex * this.targetIndex.size() + targetIndex] = score;
+    }
+
+    private boolean hasLink(int sourceIndex, int targetIndex) {
+        return !Float.isNaN(getScore(sourceIndex, targetIndex));
+    }
+
+    public void forEachLink(LinkVisitor visitor) {
+        for (int i = 0; i < sourceIndex.size(); i++) {
+            for (int j = 0; j < targetIndex.size(); j++) {
+                float score = getScore(i, j);
+                if (!Float.isNaN(score)) {
+                    visitor.visit(i, j, score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the links scoring strictly above the threshold, like getLinksAboveThreshold.
+     */
+    public void forEachLinkAboveThreshold(LinkVisitor visitor) {
+        for (int i = 0; i < sourceIndex.size(); i++) {
+            for (int j = 0; j < targetIndex.size(); j++) {
+                float score = getScore(i, j);
+                if (score > threshold) {
+                    visitor.visit(i, j, score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the indexes of the n best targets of a source into out, best first. On equal scores
+     * the lower index comes first. Nothing is allocated, out must hold at least n indexes.
+     *
+     * @return number of indexes written, at most n
+     */
+    public int topTargets(int sourceIndex, int n, int[] out) {
+        if (n <= 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int j = 0; j < targetIndex.size(); j++) {
+            float score = getScore(sourceIndex, j);
+            if (Float.isNaN(score) || (count == n && !(score > getScore(sourceIndex, out[count - 1])))) {
+                continue;
+            }
+            // insertion into the sorted prefix, the worst one drops out when it is full
+            int position = count < n ? count++ : count - 1;
+            while (position > 0 && score > getScore(sourceIndex, out[position - 1])) {
+                out[position] = out[position - 1];
+                position--;
+            }
+            out[position] = j;
+        }
+        return count;
+    }
+
+    /**
+     * @return a snapshot of the links as nested maps, sources and targets in index order
+     */
+    @Override
+    protected Map<String, Map<String, Double>> getLinkMaps() {
+        Map<String, Map<String, Double>> links = new LinkedHashMap<>();
+        for (int i = 0; i < sourceIndex.size(); i++) {
+            Map<String, Double> sourceLinks = getLinksForSourceId(sourceIndex.get(i));
+            if (!sourceLinks.isEmpty()) {
+                links.put(sourceIndex.get(i), sourceLinks);
+            }
+        }
+        return links;
+    }
+
+    @Override
+    public StringHashSet sourceArtifactsIds() {
+        StringHashSet hs = new StringHashSet();
+        for (int i = 0; i < sourceIndex.size(); i++) {
+            for (int j = 0; j < targetIndex.size(); j++) {
+                if (hasLink(i, j)) {
+                    hs.add(sourceIndex.get(i));
+                    break;
+                }
+            }
+        }
+        return hs;
+    }
+
+    @Override
+    public StringHashSet targetArtifactsIds() {
+        StringHashSet hs = new StringHashSet();
+        for (int j = 0; j < targetIndex.size(); j++) {
+            for (int i = 0; i < sourceIndex.size(); i++) {
+                if (hasLink(i, j)) {
+                    hs.add(targetIndex.get(j));
+                    break;
+                }
+            }
+        }
+        return hs;
+    }
+
+    @Override
+    public Double getScoreForLink(String sourceArtfactId, String targetArtfactId) {
+        int i = getSourceIndex(sourceArtfactId);
+        if (i < 0) {
+            return 0.0;
+        }
+        int j = getTargetIndex(targetArtfactId);
+        if (j < 0 || !hasLink(i, j)) {
+            return null;
+        }
+        return (double) getScore(i, j);
+    }
+
+    @Override
+    public void setScoreForLink(String sourceArtfactId, String targetArtfactId, Double score) {
+        int i = getSourceIndex(sourceArtfactId);
+        int j = getTargetIndex(targetArtfactId);
+        if (i >= 0 && j >= 0 && hasLink(i, j)) {
+            setScore(i, j, score.floatValue());
+        } else {
+            System.out.println("Target link not Found, Update score failed.");
+        }
+    }
+
+    @Override
+    public void addLink(String sourceArtifactId, String targetArtifactId, Double score) {
+        int i = getSourceIndex(sourceArtifactId);
+        int j = getTargetIndex(targetArtifactId);
+        if (i < 0 || j < 0) {
+            throw new IllegalArgumentException(String.format("Link for source artifact %s and target artifact %s is outside of the compact matrix", sourceArtifactId,
+                    targetArtifactId));
+        }
+
+        if (!hasLink(i, j)) {
+            setScore(i, j, score.floatValue());
+        } else if (getScore(i, j) != score.floatValue()) {
+            throw new IllegalArgumentException(String.format("Link for source artifact %s and target artifact %s has already been added to the spare matrix", sourceArtifactId,
+                    targetArtifactId));
+        }
+    }
+
+    @Override
+    public LinksList allLinks() {
+        final LinksList allLinks = new LinksList();
+        forEachLink(new LinkVisitor() {
+            @Override
+            public void visit(int sourceIndex, int targetIndex, float score) {
+                allLinks.add(new SingleLink(getSourceArtifactId(sourceIndex), getTargetArtifactId(targetIndex), (double) score));
+            }
+        });
+        return allLinks;
+    }
+
+    @Override
+    public Map<String, Double> getLinksForSourceId(String sourceArtifactId) {
+        int i = getSourceIndex(sourceArtifactId);
+        if (i < 0) {
+            return null;
+        }
+        Map<String, Double> links = new LinkedHashMap<>();
+        for (int j = 0; j < targetIndex.size(); j++) {
+            if (hasLink(i, j)) {
+                links.put(targetIndex.get(j), (double) getScore(i, j));
+            }
+        }
+        return links;
+    }
+
+    @Override
+    public int count() {
+        int totalCount = 0;
+        for (float score : scores) {
+            if (!Float.isNaN(score)) {
+                totalCount++;
+            }
+        }
+        return totalCount;
+    }
+
+    @Override
+    public boolean isLinkAboveThreshold(String sourceArtifactId, String targetArtifactId) {
+        int i = getSourceIndex(sourceArtifactId);
+        int j = getTargetIndex(targetArtifactId);
+        return i >= 0 && j >= 0 && getScore(i, j) >= threshold;
+    }
+
+    @Override
+    public StringHashSet getSetOfTargetArtifactIdsAboveThresholdForSourceArtifact(String sourceArtifactId) {
+        StringHashSet linksForSourceArtifact = new StringHashSet();
+        int i = getSourceIndex(sourceArtifactId);
+        if (i >= 0) {
+            for (int j = 0; j < targetIndex.size(); j++) {
+                if (getScore(i, j) > threshold) {
+                    linksForSourceArtifact.add(targetIndex.get(j));
+                }
+            }
+        }
+        return linksForSourceArtifact;
+    }
+
+    @Override
+    public LinksList getLinksAboveThresholdForSourceArtifact(String sourceArtifactId) {
+        LinksList linksForSourceArtifact = new LinksList();
+        int i = getSourceIndex(sourceArtifactId);
+        if (i >= 0) {
+            for (int j = 0; j < targetIndex.size(); j++) {
+                float score = getScore(i, j);
+                if (score >= threshold) {
+                    linksForSourceArtifact.add(new SingleLink(sourceArtifactId, targetIndex.get(j), (double) score));
+                }
+            }
+        }
+        return linksForSourceArtifact;
+    }
+
+    @Override
+    public LinksList getLinksAboveThreshold() {
+        final LinksList linksAboveThreshold = new LinksList();
+        forEachLinkAboveThreshold(new LinkVisitor() {
+            @Override
+            public void visit(int sourceIndex, int targetIndex, float score) {
+                linksAboveThreshold.add(new SingleLink(getSourceArtifactId(sourceIndex), getTargetArtifactId(targetIndex), (double) score));
+            }
+        });
+        return linksAboveThreshold;
+    }
+}
@@ -0,0 +1,8 @@
+package edu.nju.cs.inform.core.type;
+
+/**
+ * Callback for allocation-free iteration over the links of a CompactSimilarityMatrix.
+ */
+public interface LinkVisitor {
+    public void visit(int sourceIndex, int targetIndex, float score);
+}
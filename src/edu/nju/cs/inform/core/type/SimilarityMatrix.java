@@ -20,11 +20,18 @@ public class SimilarityMatrix implements Serializable {
     }
 
     public SimilarityMatrix(SimilarityMatrix inMatrix) {
-        this.matrix = inMatrix.matrix;
+        this.matrix = inMatrix.getLinkMaps();
         this.name = inMatrix.name;
         this.threshold = inMatrix.threshold;
     }
 
+    /**
+     * @return the links by source and target, the copy constructor takes these
+     */
+    protected Map<String, Map<String, Double>> getLinkMaps() {
+        return matrix;
+    }
+
     public void setThreshold(Double value) {
         if (value != null) {
             this.threshold = value;
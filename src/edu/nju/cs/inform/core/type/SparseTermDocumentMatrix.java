@@ -0,0 +1,221 @@
+package edu.nju.cs.inform.core.type;
+
+import java.util.*;
+
+/**
+ * Term-document matrix in compressed sparse row (CSR) layout.
+ *
+ * Only non-zero term counts are stored. The entries of document i live in
+ * [getRowStart(i), getRowEnd(i)) of the termIds/values arrays, sorted by term id,
+ * so memory grows with the number of non-zeros instead of docs x terms.
+ *
+ * The terms of a TokenizedArtifact are taken from its term ids, other artifacts, and tokenized
+ * ones whose text was reassigned, are split on spaces.
+ */
+public class SparseTermDocumentMatrix {
+
+    private TermVocabulary vocabulary;
+    private List<String> docIndex;
+    private Map<String, Integer> docIndexLookup;
+
+    private int[] rowPointers;
+    private int[] termIds;
+    private float[] values;
+
+    public SparseTermDocumentMatrix(ArtifactsCollection artifacts) {
+        this(artifacts, new TermVocabulary());
+    }
+
+    public SparseTermDocumentMatrix(ArtifactsCollection artifacts, TermVocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+        this.docIndex = new ArrayList<>();
+        this.docIndexLookup = new HashMap<>();
+        this.rowPointers = new int[artifacts.size() + 1];
+        this.termIds = new int[16];
+        this.values = new float[16];
+
+        // per document counts, indexed by term id and reset after each row
+        int[] counts = new int[16];
+        int[] touched = new int[16];
+        int nonZeros = 0;
+
+        // ids of the matrix vocabulary for the term ids of tokenized artifacts, -1 until first seen
+        TermVocabulary mappedVocabulary = null;
+        int[] mapping = new int[0];
+
+        for (Artifact a : artifacts.values()) {
+            docIndex.add(a.id);
+            docIndexLookup.put(a.id, docIndex.size() - 1);
+
+            int[] ids;
+            if (a instanceof TokenizedArtifact && ((TokenizedArtifact) a).matchesText()) {
+                TokenizedArtifact tokenized = (TokenizedArtifact) a;
+                if (tokenized.getVocabulary() != mappedVocabulary) {
+                    mappedVocabulary = tokenized.getVocabulary();
+                    mapping = new int[0];
+                }
+                if (mapping.length < mappedVocabulary.size()) {
+                    int oldLength = mapping.length;
+                    mapping = Arrays.copyOf(mapping, mappedVocabulary.size());
+                    Arrays.fill(mapping, oldLength, mapping.length, -1);
+                }
+
+                int[] termIdsOfArtifact = tokenized.getTermIds();
+                ids = new int[termIdsOfArtifact.length];
+                for (int k = 0; k < ids.length; k++) {
+                    int shared = termIdsOfArtifact[k];
+                    if (mapping[shared] < 0) {
+                        mapping[shared] = vocabulary.intern(mappedVocabulary.getTermName(shared));
+                    }
+                    ids[k] = mapping[shared];
+                }
+            } else {
+                String[] terms = a.text.split(" ");
+                ids = new int[terms.length];
+                for (int k = 0; k < ids.length; k++) {
+                    ids[k] = vocabulary.intern(terms[k]);
+                }
+            }
+
+            int touchedSize = 0;
+            for (int id : ids) {
+                if (id >= counts.length) {
+                    counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+                }
+                if (counts[id] == 0) {
+                    if (touchedSize == touched.length) {
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    }
+                    touched[touchedSize++] = id;
+                }
+                counts[id]++;
+            }
+
+            Arrays.sort(touched, 0, touchedSize);
+            if (nonZeros + touchedSize > termIds.length) {
+                int capacity = Math.max(nonZeros + touchedSize, termIds.length * 2);
+                termIds = Arrays.copyOf(termIds, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            for (int k = 0; k < touchedSize; k++) {
+                int id = touched[k];
+                termIds[nonZeros] = id;
+                values[nonZeros] = counts[id];
+                nonZeros++;
+                counts[id] = 0;
+            }
+            rowPointers[docIndex.size()] = nonZeros;
+        }
+
+        termIds = Arrays.copyOf(termIds, nonZeros);
+        values = Arrays.copyOf(values, nonZeros);
+    }
+
+    public int NumTerms() {
+        return vocabulary.size();
+    }
+
+    public int NumDocs() {
+        return docIndex.size();
+    }
+
+    public int NumNonZeros() {
+        return termIds.length;
+    }
+
+    public TermVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    public int getRowStart(int docIndex) {
+        return rowPointers[docIndex];
+    }
+
+    public int getRowEnd(int docIndex) {
+        return rowPointers[docIndex + 1];
+    }
+
+    public int getTermIdAt(int position) {
+        return termIds[position];
+    }
+
+    public float getValueAt(int position) {
+        return values[position];
+    }
+
+    public double getValue(int docIndex, int termId) {
+        int position = Arrays.binarySearch(termIds, rowPointers[docIndex], rowPointers[docIndex + 1], termId);
+        return position >= 0 ? values[position] : 0.0;
+    }
+
+    public double getValue(String artifactID, String term) {
+        int termId = vocabulary.getTermId(term);
+        return termId < 0 ? 0.0 : getValue(getDocumentIndex(artifactID), termId);
+    }
+
+    /**
+     * @return sum of the term counts of a document
+     */
+    public double getDocumentLength(int docIndex) {
+        double length = 0.0;
+        for (int k = rowPointers[docIndex]; k < rowPointers[docIndex + 1]; k++) {
+            length += values[k];
+        }
+        return length;
+    }
+
+    /**
+     * @return number of documents containing each term, indexed by term id
+     */
+    public int[] getDocumentFrequencies() {
+        int[] df = new int[vocabulary.size()];
+        for (int k = 0; k < termIds.length; k++) {
+            df[termIds[k]]++;
+        }
+        return df;
+    }
+
+    public int getTermIndex(String term) {
+        return vocabulary.getTermId(term);
+    }
+
+    public String getTermName(int index) {
+        return vocabulary.getTermName(index);
+    }
+
+    public boolean containsTerm(String term) {
+        return vocabulary.containsTerm(term);
+    }
+
+    public boolean containsDocument(String artifactID) {
+        return docIndexLookup.containsKey(artifactID);
+    }
+
+    public int getDocumentIndex(String artifactID) {
+        return docIndexLookup.get(artifactID);
+    }
+
+    public String getDocumentName(int index) {
+        return docIndex.get(index);
+    }
+
+    public List<String> getDocIndex() {
+        return docIndex;
+    }
+
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+
+        for (int i = 0; i < NumDocs(); i++) {
+            sb.append(docIndex.get(i) + ": ");
+            for (int k = getRowStart(i); k < getRowEnd(i); k++) {
+                sb.append(getTermName(termIds[k]));
+                sb.append("._");
+                sb.append(values[k]);
+                sb.append("\t");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -70,7 +70,7 @@ public class TermDocumentMatrix {
             docIndexLookup.put(a.id, docIndex.size() - 1);
             corpus.put(a.id, new LinkedHashMap<String, Double>());
 
-            for (String term : a.text.split(" ")) {
+            for (String term : TokenizedArtifact.getTerms(a)) {
                 // update term maps
                 if (term != null && !term.equals(" ")) {
                     if (!termIndexLookup.containsKey(term)) {
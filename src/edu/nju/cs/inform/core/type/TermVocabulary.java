@@ -0,0 +1,52 @@
+package edu.nju.cs.inform.core.type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interned term dictionary, each distinct term is mapped once to a dense int id.
+ * Ids are assigned in first-seen order, so matrices built on the same vocabulary
+ * share their term columns and never need to be equalized.
+ */
+public class TermVocabulary {
+
+    private List<String> termIndex;
+    private Map<String, Integer> termIndexLookup;
+
+    public TermVocabulary() {
+        termIndex = new ArrayList<>();
+        termIndexLookup = new HashMap<>();
+    }
+
+    public int intern(String term) {
+        Integer id = termIndexLookup.get(term);
+        if (id == null) {
+            id = termIndex.size();
+            termIndex.add(term);
+            termIndexLookup.put(term, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the term, or -1 if the term has never been interned
+     */
+    public int getTermId(String term) {
+        Integer id = termIndexLookup.get(term);
+        return id == null ? -1 : id;
+    }
+
+    public String getTermName(int id) {
+        return termIndex.get(id);
+    }
+
+    public boolean containsTerm(String term) {
+        return termIndexLookup.containsKey(term);
+    }
+
+    public int size() {
+        return termIndex.size();
+    }
+}
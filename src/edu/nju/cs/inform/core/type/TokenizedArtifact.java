@@ -0,0 +1,124 @@
+package edu.nju.cs.inform.core.type;
+
+/**
+ * Preprocessed artifact that keeps its terms as ids of a shared TermVocabulary, so the term
+ * matrices read them directly instead of splitting the text again.
+ *
+ * text holds the space-joined terms for the code that reads it, the term ids are the tokens
+ * text.split(" ") would give. An artifact made from term ids alone leaves text null until
+ * getText joins it. A tokenized artifact is immutable: the term ids are never changed after
+ * construction, and if text is assigned anyway the ids no longer describe it, getTerms and
+ * SparseTermDocumentMatrix then fall back to splitting the new text.
+ */
+public class TokenizedArtifact extends Artifact {
+
+    private static final long serialVersionUID = 1L;
+
+    // the text the term ids were made from, null until it is joined
+    private String tokenizedText;
+    private final TermVocabulary vocabulary;
+    private final int[] termIds;
+    private final int[] positions;
+
+    /**
+     * An artifact whose text is only joined from the terms when getText asks for it
+     *
+     * @param positions for every term the index of the letter run of the raw text it was cut from, or null
+     */
+    public TokenizedArtifact(String id, TermVocabulary vocabulary, int[] termIds, int[] positions) {
+        this(id, null, vocabulary, termIds, positions);
+    }
+
+    /**
+     * @param positions for every term the index of the letter run of the raw text it was cut from, or null
+     */
+    public TokenizedArtifact(String id, String text, TermVocabulary vocabulary, int[] termIds, int[] positions) {
+        super(id, text);
+        this.tokenizedText = text;
+        this.vocabulary = vocabulary;
+        this.termIds = termIds;
+        this.positions = positions;
+    }
+
+    /**
+     * @return true while text is still the text the term ids were made from
+     */
+    public boolean matchesText() {
+        return text == tokenizedText;
+    }
+
+    public TermVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return the term ids in text order, shared with the artifact and not to be modified
+     */
+    public int[] getTermIds() {
+        return termIds;
+    }
+
+    /**
+     * @return the positions of the terms, or null if they were not recorded
+     */
+    public int[] getPositions() {
+        return positions;
+    }
+
+    public int length() {
+        return termIds.length;
+    }
+
+    /**
+     * @return the text of a preprocessed artifact, joined from the term ids of a TokenizedArtifact
+     * made without it
+     */
+    public static String getText(Artifact artifact) {
+        if (artifact.text == null && artifact instanceof TokenizedArtifact) {
+            ((TokenizedArtifact) artifact).joinTerms();
+        }
+        return artifact.text;
+    }
+
+    /**
+     * Sets text to the terms, every term followed by a space
+     */
+    private synchronized void joinTerms() {
+        if (text != null) {
+            return;
+        }
+        String joined;
+        // text.split(" ") drops trailing empty strings: no terms come from " " and the empty term from ""
+        if (termIds.length == 0) {
+            joined = " ";
+        } else if (termIds.length == 1 && vocabulary.getTermName(termIds[0]).isEmpty()) {
+            joined = "";
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (int termId : termIds) {
+                sb.append(vocabulary.getTermName(termId));
+                sb.append(" ");
+            }
+            joined = sb.toString();
+        }
+        tokenizedText = joined;
+        text = joined;
+    }
+
+    /**
+     * @return the terms of a preprocessed artifact, looked up from the term ids of a
+     * TokenizedArtifact and split from the text of any other artifact, see matchesText
+     */
+    public static String[] getTerms(Artifact artifact) {
+        if (!(artifact instanceof TokenizedArtifact) || !((TokenizedArtifact) artifact).matchesText()) {
+            return artifact.text.split(" ");
+        }
+
+        TokenizedArtifact tokenized = (TokenizedArtifact) artifact;
+        String[] terms = new String[tokenized.termIds.length];
+        for (int k = 0; k < terms.length; k++) {
+            terms[k] = tokenized.vocabulary.getTermName(tokenized.termIds[k]);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,117 @@
+package edu.nju.cs.inform.core.type;
+
+/**
+ * Bounded min-heap over primitive (index, score) pairs that keeps the k highest scores.
+ * On equal scores the lower index wins, so the selection does not depend on arrival order.
+ */
+public class TopKSelector {
+
+    private final int k;
+    private final int[] indices;
+    private final double[] scores;
+    private int size;
+
+    public TopKSelector(int k) {
+        this.k = k;
+        this.indices = new int[k];
+        this.scores = new double[k];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * @return the lowest selected score, only meaningful when the selector is not empty
+     */
+    public double getMinScore() {
+        return scores[0];
+    }
+
+    public void offer(int index, double score) {
+        if (size < k) {
+            indices[size] = index;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (k > 0 && isWorse(indices[0], scores[0], index, score)) {
+            indices[0] = index;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empties the selector, writing the selected pairs best score first.
+     *
+     * @return number of pairs written
+     */
+    public int drainSorted(int[] outIndices, double[] outScores) {
+        int count = size;
+        for (int n = count - 1; n >= 0; n--) {
+            outIndices[n] = indices[0];
+            outScores[n] = scores[0];
+            size--;
+            indices[0] = indices[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return count;
+    }
+
+    /**
+     * @return true if (index1, score1) ranks below (index2, score2)
+     */
+    private static boolean isWorse(int index1, double score1, int index2, double score2) {
+        if (score1 != score2) {
+            return score1 < score2;
+        }
+        return index1 > index2;
+    }
+
+    private void siftUp(int n) {
+        while (n > 0) {
+            int parent = (n - 1) >>> 1;
+            if (!isWorse(indices[n], scores[n], indices[parent], scores[parent])) {
+                break;
+            }
+            swap(n, parent);
+            n = parent;
+        }
+    }
+
+    private void siftDown(int n) {
+        while (true) {
+            int left = 2 * n + 1;
+            if (left >= size) {
+                break;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && isWorse(indices[right], scores[right], indices[left], scores[left])) {
+                worst = right;
+            }
+            if (!isWorse(indices[worst], scores[worst], indices[n], scores[n])) {
+                break;
+            }
+            swap(n, worst);
+            n = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = indices[a];
+        indices[a] = indices[b];
+        indices[b] = index;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
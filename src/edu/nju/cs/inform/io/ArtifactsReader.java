@@ -33,4 +33,12 @@ public class ArtifactsReader {
 
         return collections;
     }
+
+    /**
+     * @return the artifacts of the matching files below the directory, read one at a time,
+     * see SourceTreeScanner for the glob and the ids of nested files
+     */
+    public static Iterable<Artifact> getArtifacts(String dirPath, String glob) {
+        return new SourceTreeScanner(dirPath, glob).artifacts();
+    }
 }
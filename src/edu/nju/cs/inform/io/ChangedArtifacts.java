@@ -1,13 +1,18 @@
 package edu.nju.cs.inform.io;
 
 import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.diff.SourceCodeElements;
 import edu.nju.cs.inform.core.type.ChangeType;
 import edu.nju.cs.inform.core.type.CodeElementChange;
 import edu.nju.cs.inform.core.type.ElementType;
+import edu.nju.cs.inform.util.ElementSymbolTable;
 import edu.nju.cs.inform.util._;
 
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 
 /**
  * Created by niejia on 15/11/8.
@@ -23,6 +28,18 @@ public class ChangedArtifacts {
     private HashSet<String> fieldsList;
     private HashSet<String> methodsList;
 
+    // the sets above by element id, the is* tests look a name up once and test bits
+    private ElementSymbolTable symbols;
+    private BitSet addedIds;
+    private BitSet removedIds;
+    private BitSet modifiedIds;
+    private BitSet fieldIds;
+    private BitSet methodIds;
+
+    // changed overloads by signature, and the methods one of whose overloads was added or removed
+    private LinkedHashMap<String, ChangeType> signatureChanges;
+    private BitSet overloadChangedIds;
+
 //    private HashSet<String> AddedFieldsList;
 //    private HashSet<String> AddedMethodsList;
 //    private HashSet<String> RemovedFieldsList;
@@ -33,42 +50,22 @@ public class ChangedArtifacts {
         String input = _.readFile(path);
         String lines[] = input.split("\n");
 
-        addedArtifactList = new LinkedHashSet<>();
-        removedArtifactList = new LinkedHashSet<>();
-        modifiedArtifactList = new LinkedHashSet<>();
-        wholeChangedArtifactList = new LinkedHashSet<>();
-
-        fieldsList = new LinkedHashSet<>();
-        methodsList = new LinkedHashSet<>();
+        init(new ElementSymbolTable());
 
         for (String line : lines) {
+            ChangeType changeType = null;
             if (line.startsWith("Added")) {
-                getAddedArtifactList().add(line.split(" ")[2]);
-
-                String type = line.split(" ")[1];
-                if (type.equals("Field")) {
-                    getFieldsList().add(line.split(" ")[2]);
-                } else if (type.equals("Method")) {
-                    getMethodsList().add(line.split(" ")[2]);
-                }
+                changeType = ChangeType.Added;
             } else if (line.startsWith("Removed")) {
-                getRemovedArtifactList().add(line.split(" ")[2]);
-
-                String type = line.split(" ")[1];
-                if (type.equals("Field")) {
-                    getFieldsList().add(line.split(" ")[2]);
-                } else if (type.equals("Method")) {
-                    getMethodsList().add(line.split(" ")[2]);
-                }
+                changeType = ChangeType.Removed;
             } else if (line.startsWith("Changed")) {
-                getModifiedArtifactList().add(line.split(" ")[2]);
-
+                changeType = ChangeType.Modified;
+            }
+            if (changeType != null) {
                 String type = line.split(" ")[1];
-                if (type.equals("Field")) {
-                    getFieldsList().add(line.split(" ")[2]);
-                } else if (type.equals("Method")) {
-                    getMethodsList().add(line.split(" ")[2]);
-                }
+                ElementType elementType = type.equals("Field") ? ElementType.Field
+                        : type.equals("Method") ? ElementType.Method : null;
+                add(line.split(" ")[2], changeType, elementType);
             }
         }
 
@@ -78,43 +75,63 @@ public class ChangedArtifacts {
     }
 
     public boolean isAddedArtifact(String artifactName) {
-        return getAddedArtifactList().contains(artifactName);
+        return has(artifactName, addedIds, null);
     }
 
     public boolean isAddedMethod(String artifactName) {
-        return getAddedArtifactList().contains(artifactName) && getMethodsList().contains(artifactName);
+        return has(artifactName, addedIds, methodIds);
     }
 
     public boolean isRemovedMethod(String artifactName) {
-        return getRemovedArtifactList().contains(artifactName) && getMethodsList().contains(artifactName);
+        return has(artifactName, removedIds, methodIds);
     }
 
     public boolean isModifiedMethod(String artifactName) {
-        return getModifiedArtifactList().contains(artifactName) && getMethodsList().contains(artifactName);
+        return has(artifactName, modifiedIds, methodIds);
     }
 
     public boolean isAddedField(String artifactName) {
-        return getAddedArtifactList().contains(artifactName) && getFieldsList().contains(artifactName);
+        return has(artifactName, addedIds, fieldIds);
     }
 
     public boolean isRemovedField(String artifactName) {
-        return getRemovedArtifactList().contains(artifactName) && getFieldsList().contains(artifactName);
+        return has(artifactName, removedIds, fieldIds);
     }
 
     public boolean isField(String artifactName) {
-        return fieldsList.contains(artifactName);
+        return has(artifactName, fieldIds, null);
     }
 
     public boolean isMethod(String artifactName) {
-        return methodsList.contains(artifactName);
+        return has(artifactName, methodIds, null);
     }
 
     public boolean isRemovedArtifact(String artifactName) {
-        return getRemovedArtifactList().contains(artifactName);
+        return has(artifactName, removedIds, null);
     }
 
     public boolean isModifiedArtifact(String artifactName) {
-        return getModifiedArtifactList().contains(artifactName);
+        return has(artifactName, modifiedIds, null);
+    }
+
+    /**
+     * @return true for a modified method that gained or lost an overload, its change is in the
+     * signatures like an added or removed method's and not only in a body
+     */
+    public boolean isOverloadChangedMethod(String artifactName) {
+        return has(artifactName, modifiedIds, overloadChangedIds);
+    }
+
+    /**
+     * @return change type of every changed overload by signature, like package.Class.method(int,String)
+     */
+    public Map<String, ChangeType> getSignatureChanges() {
+        return signatureChanges;
+    }
+
+    private boolean has(String artifactName, BitSet kind, BitSet elementType) {
+        int id = symbols.getId(artifactName);
+        return id != ElementSymbolTable.NONE && kind.get(id) && (elementType == null || elementType.get(id));
     }
 
     public String toString() {
@@ -204,8 +221,32 @@ public class ChangedArtifacts {
         return result;
     }
 
+    /**
+     * The names are interned into the symbol table of the comparer, they share its ids and instances
+     */
     public void parse(CodeElementsComparer codeElementsComparer) {
 
+        init(codeElementsComparer.getSymbols());
+
+        for (CodeElementChange change : codeElementsComparer.getMethodFieldsChangesList()) {
+            add(change.getElementName(), change.getChangeType(), change.getElementType());
+        }
+
+        for (CodeElementChange change : codeElementsComparer.getMethodSignatureChangesList()) {
+            String signature = change.getElementName();
+            signatureChanges.put(signature, change.getChangeType());
+            if (!change.getChangeType().equals(ChangeType.Modified)) {
+                overloadChangedIds.set(symbols.intern(SourceCodeElements.getMethodName(signature)));
+            }
+        }
+
+        getWholeChangedArtifactList().addAll(getAddedArtifactList());
+        getWholeChangedArtifactList().addAll(getRemovedArtifactList());
+        getWholeChangedArtifactList().addAll(getModifiedArtifactList());
+    }
+
+    private void init(ElementSymbolTable symbols) {
+        this.symbols = symbols;
         addedArtifactList = new LinkedHashSet<>();
         removedArtifactList = new LinkedHashSet<>();
         modifiedArtifactList = new LinkedHashSet<>();
@@ -214,39 +255,41 @@ public class ChangedArtifacts {
         fieldsList = new LinkedHashSet<>();
         methodsList = new LinkedHashSet<>();
 
-        for (CodeElementChange change : codeElementsComparer.getMethodFieldsChangesList()) {
-            if (change.getChangeType().equals(ChangeType.Added)) {
-                getAddedArtifactList().add(change.getElementName());
-
-                ElementType type = change.getElementType();
-                if (type.equals(ElementType.Field)) {
-                    getFieldsList().add(change.getElementName());
-                } else if (type.equals(ElementType.Method)) {
-                    getMethodsList().add(change.getElementName());
-                }
-            } else if (change.getChangeType().equals(ChangeType.Removed)) {
-                getRemovedArtifactList().add(change.getElementName());
-
-                ElementType type = change.getElementType();
-                if (type.equals(ElementType.Field)) {
-                    getFieldsList().add(change.getElementName());
-                } else if (type.equals(ElementType.Method)) {
-                    getMethodsList().add(change.getElementName());
-                }
-            } else if (change.getChangeType().equals(ChangeType.Unchanged)) {
-                getModifiedArtifactList().add(change.getElementName());
-
-                ElementType type = change.getElementType();
-                if (type.equals(ElementType.Field)) {
-                    getFieldsList().add(change.getElementName());
-                } else if (type.equals(ElementType.Method)) {
-                    getMethodsList().add(change.getElementName());
-                }
-            }
+        addedIds = new BitSet();
+        removedIds = new BitSet();
+        modifiedIds = new BitSet();
+        fieldIds = new BitSet();
+        methodIds = new BitSet();
+
+        signatureChanges = new LinkedHashMap<>();
+        overloadChangedIds = new BitSet();
+    }
+
+    /**
+     * @param elementType Field or Method, other elements are only listed by change type
+     */
+    private void add(String name, ChangeType changeType, ElementType elementType) {
+        int id = symbols.intern(name);
+        String elementName = symbols.getName(id);
+        if (changeType.equals(ChangeType.Added)) {
+            getAddedArtifactList().add(elementName);
+            addedIds.set(id);
+        } else if (changeType.equals(ChangeType.Removed)) {
+            getRemovedArtifactList().add(elementName);
+            removedIds.set(id);
+        } else if (changeType.equals(ChangeType.Modified)) {
+            getModifiedArtifactList().add(elementName);
+            modifiedIds.set(id);
+        } else {
+            return;
         }
 
-        getWholeChangedArtifactList().addAll(getAddedArtifactList());
-        getWholeChangedArtifactList().addAll(getRemovedArtifactList());
-        getWholeChangedArtifactList().addAll(getModifiedArtifactList());
+        if (ElementType.Field.equals(elementType)) {
+            getFieldsList().add(elementName);
+            fieldIds.set(id);
+        } else if (ElementType.Method.equals(elementType)) {
+            getMethodsList().add(elementName);
+            methodIds.set(id);
+        }
     }
 }
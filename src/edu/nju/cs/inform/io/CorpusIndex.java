@@ -0,0 +1,247 @@
+package edu.nju.cs.inform.io;
+
+import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+import edu.nju.cs.inform.core.type.TokenizedArtifact;
+import edu.nju.cs.inform.util.ContentHash;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * On-disk index of a preprocessed ArtifactsCollection: the vocabulary, the terms of every
+ * document in text order and the content hash of every raw text.
+ *
+ * update() only runs the preprocessor on artifacts whose raw text hash changed since the
+ * index was saved, the other artifacts reuse their stored terms. An index is only valid for
+ * the preprocessing it was built with, ArtifactPreprocessor.getPureTextSettings(), an index
+ * built with another pipeline version or other stop words loads empty.
+ *
+ * File layout, big-endian: magic, version, settings, terms (length + UTF-8 bytes), documents
+ * (id, hash, term count, then the term ids in text order).
+ */
+public class CorpusIndex {
+
+    private static final int MAGIC = 0x494E4649;
+    private static final int VERSION = 2;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private TermVocabulary vocabulary;
+    private List<String> docIds;
+    private Map<String, Integer> docLookup;
+    private List<String> hashes;
+    private List<int[]> docTerms;
+
+    private int numPreprocessed;
+
+    public CorpusIndex() {
+        this.vocabulary = new TermVocabulary();
+        this.docIds = new ArrayList<>();
+        this.docLookup = new HashMap<>();
+        this.hashes = new ArrayList<>();
+        this.docTerms = new ArrayList<>();
+    }
+
+    /**
+     * Reads the index file, a missing, unreadable or outdated file gives an empty index.
+     */
+    public static CorpusIndex load(String indexPath) {
+        CorpusIndex index = new CorpusIndex();
+        Path path = Paths.get(indexPath);
+        if (!Files.exists(path)) {
+            return index;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long fileSize = Files.size(path);
+            if (fileSize < 8 || in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !ArtifactPreprocessor.getPureTextSettings().equals(readString(in, fileSize))) {
+                System.err.println("Ignoring outdated corpus index: " + indexPath);
+                return index;
+            }
+            index.read(in, fileSize);
+        } catch (IOException | RuntimeException e) {
+            System.err.format("Ignoring unreadable corpus index %s: %s%n", indexPath, e);
+            return new CorpusIndex();
+        }
+        return index;
+    }
+
+    private void read(DataInputStream in, long fileSize) throws IOException {
+        int numTerms = readCount(in, fileSize);
+        for (int t = 0; t < numTerms; t++) {
+            vocabulary.intern(readString(in, fileSize));
+        }
+
+        int numDocs = readCount(in, fileSize);
+        for (int d = 0; d < numDocs; d++) {
+            String id = readString(in, fileSize);
+            String hash = readString(in, fileSize);
+            int[] terms = new int[readCount(in, fileSize)];
+            for (int k = 0; k < terms.length; k++) {
+                terms[k] = in.readInt();
+                if (terms[k] < 0 || terms[k] >= numTerms) {
+                    throw new IOException("Term id out of range: " + terms[k]);
+                }
+            }
+            addDocument(id, hash, terms);
+        }
+    }
+
+    /**
+     * Brings the index in line with a collection of raw artifacts, in the collection's order.
+     * Only new artifacts and artifacts whose text changed are preprocessed, removed ones are dropped.
+     */
+    public void update(ArtifactsCollection raw) {
+        TermVocabulary oldVocabulary = vocabulary;
+        Map<String, Integer> oldLookup = docLookup;
+        List<String> oldHashes = hashes;
+        List<int[]> oldTerms = docTerms;
+
+        vocabulary = new TermVocabulary();
+        docIds = new ArrayList<>();
+        docLookup = new HashMap<>();
+        hashes = new ArrayList<>();
+        docTerms = new ArrayList<>();
+        numPreprocessed = 0;
+
+        for (Artifact artifact : raw.values()) {
+            String hash = ContentHash.sha1(artifact.text);
+            Integer old = oldLookup.get(artifact.id);
+
+            int[] terms;
+            if (old != null && oldHashes.get(old).equals(hash)) {
+                int[] oldDocTerms = oldTerms.get(old);
+                terms = new int[oldDocTerms.length];
+                for (int k = 0; k < terms.length; k++) {
+                    terms[k] = vocabulary.intern(oldVocabulary.getTermName(oldDocTerms[k]));
+                }
+            } else {
+                terms = ArtifactPreprocessor.handlePureTextFile(artifact.id, artifact.text, vocabulary).getTermIds();
+                numPreprocessed++;
+            }
+            addDocument(artifact.id, hash, terms);
+        }
+    }
+
+    private void addDocument(String id, String hash, int[] terms) {
+        docLookup.put(id, docIds.size());
+        docIds.add(id);
+        hashes.add(hash);
+        docTerms.add(terms);
+    }
+
+    /**
+     * Writes the index to a temporary file next to indexPath and moves it in place, a failed
+     * save leaves the previous index untouched.
+     */
+    public void save(String indexPath) throws IOException {
+        Path path = Paths.get(indexPath).toAbsolutePath();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, ArtifactPreprocessor.getPureTextSettings());
+
+            out.writeInt(vocabulary.size());
+            for (int t = 0; t < vocabulary.size(); t++) {
+                writeString(out, vocabulary.getTermName(t));
+            }
+
+            out.writeInt(docIds.size());
+            for (int d = 0; d < docIds.size(); d++) {
+                writeString(out, docIds.get(d));
+                writeString(out, hashes.get(d));
+
+                int[] terms = docTerms.get(d);
+                out.writeInt(terms.length);
+                for (int term : terms) {
+                    out.writeInt(term);
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The indexed artifacts as TokenizedArtifacts of the index vocabulary, with the same terms in
+     * the same order as ArtifactPreprocessor.handlePureTextFile gives them.
+     */
+    public ArtifactsCollection getPreprocessedCollection() {
+        ArtifactsCollection collection = new ArtifactsCollection();
+        for (int d = 0; d < docIds.size(); d++) {
+            int[] terms = docTerms.get(d);
+            collection.put(docIds.get(d), new TokenizedArtifact(docIds.get(d), vocabulary, terms, null));
+        }
+        return collection;
+    }
+
+    public TermVocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    public int NumDocs() {
+        return docIds.size();
+    }
+
+    public boolean containsDocument(String artifactID) {
+        return docLookup.containsKey(artifactID);
+    }
+
+    public int getDocumentIndex(String artifactID) {
+        return docLookup.get(artifactID);
+    }
+
+    public String getDocumentName(int index) {
+        return docIds.get(index);
+    }
+
+    public String getContentHash(int index) {
+        return hashes.get(index);
+    }
+
+    /**
+     * @return number of terms of a document
+     */
+    public int getDocumentLength(int index) {
+        return docTerms.get(index).length;
+    }
+
+    /**
+     * @return number of artifacts the last update() had to preprocess
+     */
+    public int getNumPreprocessed() {
+        return numPreprocessed;
+    }
+
+    /**
+     * Every count and string length is checked against the file size, a corrupt file fails to
+     * load instead of allocating what its bytes claim.
+     */
+    private static int readCount(DataInputStream in, long fileSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > fileSize) {
+            throw new IOException("Corrupt count: " + count);
+        }
+        return count;
+    }
+
+    private static String readString(DataInputStream in, long fileSize) throws IOException {
+        byte[] bytes = new byte[readCount(in, fileSize)];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,362 @@
+package edu.nju.cs.inform.io;
+
+import edu.nju.cs.inform.core.diff.SourceCodeElements;
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
+import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.util.ContentHash;
+import edu.nju.cs.inform.util._;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed on-disk cache of the preprocessed text and the parsed code elements of
+ * java files, shared by all code versions.
+ *
+ * Entries are keyed by the SHA-1 of the raw file text, so a file that is byte-identical between
+ * two versions is preprocessed and parsed only once. Every entry is its own file in the cache
+ * directory: <hash>.pre for ArtifactPreprocessor.handleJavaFile, <hash>.elements for the
+ * SourceCodeElements of the file. An unreadable or outdated entry is treated as a miss and
+ * rewritten. parseJavaFile can be called from several threads at once.
+ *
+ * The directory holds at most maxBytes of entries. A hit marks its entry as recently used, when
+ * a write goes over the bound the least recently used entries are deleted down to three
+ * quarters of it.
+ */
+public class PreprocessingCache {
+
+    private static final int VERSION = 3;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+    private File cacheDir;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong();
+    private AtomicInteger hits = new AtomicInteger();
+    private AtomicInteger misses = new AtomicInteger();
+
+    public PreprocessingCache(String cacheDirPath) {
+        this(cacheDirPath, DEFAULT_MAX_BYTES);
+    }
+
+    public PreprocessingCache(String cacheDirPath, long maxBytes) {
+        this.cacheDir = new File(cacheDirPath);
+        this.maxBytes = maxBytes;
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            _.abort("Can't create preprocessing cache directory " + cacheDirPath);
+        }
+        for (File entry : listEntries()) {
+            size.addAndGet(entry.length());
+        }
+    }
+
+    /**
+     * ArtifactPreprocessor.handleJavaFiles, only the artifacts missing from the cache are
+     * preprocessed, on the pool if one is given.
+     */
+    public ArtifactsCollection handleJavaFiles(ArtifactsCollection collection, ForkJoinPool pool) {
+        // the stop words are part of the key, a different list must not reuse the entries
+        String settings = ArtifactPreprocessor.getJavaSettings();
+
+        Map<String, String> texts = new HashMap<>();
+        ArtifactsCollection missing = new ArtifactsCollection();
+        List<String> missingHashes = new ArrayList<>();
+        for (Artifact artifact : collection.values()) {
+            String hash = ContentHash.sha1(artifact.text);
+            String text = readPreprocessed(hash, settings);
+            if (text == null) {
+                missing.put(artifact.id, artifact);
+                missingHashes.add(hash);
+                misses.incrementAndGet();
+            } else {
+                texts.put(artifact.id, text);
+                hits.incrementAndGet();
+            }
+        }
+
+        ArtifactsCollection computed = ArtifactPreprocessor.handleJavaFiles(missing, pool);
+        int n = 0;
+        for (Artifact artifact : computed.values()) {
+            texts.put(artifact.id, artifact.text);
+            writePreprocessed(missingHashes.get(n++), settings, artifact.text);
+        }
+
+        ArtifactsCollection preprocessed = new ArtifactsCollection();
+        for (String id : collection.keySet()) {
+            preprocessed.put(id, new Artifact(id, texts.get(id)));
+        }
+        return preprocessed;
+    }
+
+    public String handleJavaFile(String javaSource) {
+        String settings = ArtifactPreprocessor.getJavaSettings();
+        String hash = ContentHash.sha1(javaSource);
+        String text = readPreprocessed(hash, settings);
+        if (text == null) {
+            misses.incrementAndGet();
+            text = ArtifactPreprocessor.handleJavaFile(javaSource);
+            writePreprocessed(hash, settings, text);
+        } else {
+            hits.incrementAndGet();
+        }
+        return text;
+    }
+
+    /**
+     * @return the code elements of a single java file, as SourceCodeElements.parse gives them
+     */
+    public SourceCodeElements parseJavaFile(String javaSource) {
+        return parseJavaFile(javaSource, null);
+    }
+
+    /**
+     * @param registry registry the AST is taken from when the elements are not cached, or null
+     */
+    public SourceCodeElements parseJavaFile(String javaSource, CompilationUnitRegistry registry) {
+        String hash = ContentHash.sha1(javaSource);
+        SourceCodeElements fragment = readElements(hash);
+        if (fragment == null) {
+            misses.incrementAndGet();
+            fragment = SourceCodeElements.parse(javaSource, registry);
+            writeElements(hash, fragment);
+        } else {
+            hits.incrementAndGet();
+        }
+        return fragment;
+    }
+
+    /**
+     * @param hash ContentHash.sha1 of a java source
+     * @return whether the code elements of the source are cached, so it need not be parsed
+     */
+    public boolean hasElements(String hash) {
+        return new File(cacheDir, hash + ".elements").exists();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private String readPreprocessed(String hash, String settings) {
+        File entry = new File(cacheDir, hash + ".pre");
+        if (!entry.exists()) {
+            return null;
+        }
+        long limit = entry.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+            if (in.readInt() != VERSION || !settings.equals(readString(in, limit))) {
+                return null;
+            }
+            String text = readString(in, limit);
+            touch(entry);
+            return text;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writePreprocessed(String hash, String settings, String text) {
+        try {
+            try (DataOutputStream out = openEntry(temporaryName(hash + ".pre"))) {
+                out.writeInt(VERSION);
+                writeString(out, settings);
+                writeString(out, text);
+            }
+            moveEntry(hash + ".pre");
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+    }
+
+    private SourceCodeElements readElements(String hash) {
+        File entry = new File(cacheDir, hash + ".elements");
+        if (!entry.exists()) {
+            return null;
+        }
+        long limit = entry.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            SourceCodeElements fragment = new SourceCodeElements();
+            for (int i = in.readInt(); i > 0; i--) {
+                fragment.addPackage(readString(in, limit));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String className = readString(in, limit);
+                fragment.addClass(className);
+                fragment.addClassComments(className, readString(in, limit));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String methodName = readString(in, limit);
+                fragment.addMethod(methodName);
+                fragment.addMethodBody(methodName, readString(in, limit));
+                fragment.addMethodComments(methodName, readString(in, limit));
+                fragment.addMethodParameters(methodName, readString(in, limit));
+                fragment.addFingerprint(methodName, readString(in, limit));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String fieldName = readString(in, limit);
+                fragment.addField(fieldName);
+                fragment.addFingerprint(fieldName, readString(in, limit));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String signature = readString(in, limit);
+                fragment.addMethodSignature(signature);
+                fragment.addFingerprint(signature, readString(in, limit));
+            }
+            touch(entry);
+            return fragment;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeElements(String hash, SourceCodeElements fragment) {
+        try {
+            try (DataOutputStream out = openEntry(temporaryName(hash + ".elements"))) {
+                out.writeInt(VERSION);
+                out.writeInt(fragment.getPackagesList().size());
+                for (String packageName : fragment.getPackagesList()) {
+                    writeString(out, packageName);
+                }
+                out.writeInt(fragment.getClassesList().size());
+                for (String className : fragment.getClassesList()) {
+                    writeString(out, className);
+                    writeString(out, fragment.getClassComments(className));
+                }
+                out.writeInt(fragment.getMethodsList().size());
+                for (String methodName : fragment.getMethodsList()) {
+                    writeString(out, methodName);
+                    writeString(out, fragment.getMethodBody(methodName));
+                    writeString(out, fragment.getMethodComments(methodName));
+                    writeString(out, fragment.getMethodParameters(methodName));
+                    writeString(out, fragment.getFingerprint(methodName));
+                }
+                out.writeInt(fragment.getFieldsList().size());
+                for (String fieldName : fragment.getFieldsList()) {
+                    writeString(out, fieldName);
+                    writeString(out, fragment.getFingerprint(fieldName));
+                }
+                out.writeInt(fragment.getMethodSignaturesList().size());
+                for (String signature : fragment.getMethodSignaturesList()) {
+                    writeString(out, signature);
+                    writeString(out, fragment.getFingerprint(signature));
+                }
+            }
+            moveEntry(hash + ".elements");
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+    }
+
+    private DataOutputStream openEntry(String name) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(cacheDir, name))));
+    }
+
+    /**
+     * Entries are written to a file of the writing thread and then moved in place, files parsed
+     * concurrently may store the same entry and a reader never sees a half written one.
+     */
+    private static String temporaryName(String name) {
+        return name + "." + Thread.currentThread().getId() + ".tmp";
+    }
+
+    private void moveEntry(String name) throws IOException {
+        File entry = new File(cacheDir, name);
+        long replaced = entry.length();
+        Files.move(new File(cacheDir, temporaryName(name)).toPath(), entry.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (size.addAndGet(entry.length() - replaced) > maxBytes) {
+            evict();
+        }
+    }
+
+    private static void touch(File entry) {
+        entry.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is down to three quarters of maxBytes
+     */
+    private synchronized void evict() {
+        if (size.get() <= maxBytes) {
+            return;
+        }
+        List<File> entries = new ArrayList<>(listEntries());
+        final Map<File, Long> lastUsed = new HashMap<>();
+        long total = 0;
+        for (File entry : entries) {
+            lastUsed.put(entry, entry.lastModified());
+            total += entry.length();
+        }
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(lastUsed.get(a), lastUsed.get(b));
+            }
+        });
+
+        for (File entry : entries) {
+            if (total <= maxBytes / 4 * 3) {
+                break;
+            }
+            long length = entry.length();
+            if (entry.delete()) {
+                total -= length;
+            }
+        }
+        size.set(total);
+    }
+
+    private List<File> listEntries() {
+        File[] entries = cacheDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".pre") || name.endsWith(".elements");
+            }
+        });
+        return entries == null ? Collections.<File>emptyList() : Arrays.asList(entries);
+    }
+
+    /**
+     * Strings are written as a length and UTF-8 bytes, null as length -1
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param limit size of the entry, a corrupt length beyond it fails instead of being allocated
+     */
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > limit) {
+            throw new IOException("Corrupt string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
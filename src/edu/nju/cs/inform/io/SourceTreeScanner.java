@@ -0,0 +1,183 @@
+package edu.nju.cs.inform.io;
+
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.util._;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the files of a source tree that match a glob, in every nested directory, so layouts like
+ * src/main/java/** are read completely.
+ *
+ * A glob without '/' is matched against the file name, e.g. "*.java", any other glob against the
+ * path relative to the root, e.g. "src/main/java/**.java". The id of an artifact is its relative
+ * path without the extension, with '.' between the directories, so a flat directory gives the
+ * same ids as ArtifactsReader.getCollections.
+ *
+ * Files are only read when their artifact is requested, artifacts() hands them out one at a time
+ * and getCollection() reads them on a pool. The preprocessor and the parser take the text as a
+ * String, so every file is decoded onto the heap whole; a tree that does not fit should be walked
+ * with artifacts() rather than read into one collection.
+ */
+public class SourceTreeScanner {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Path root;
+    private final List<Path> paths;
+
+    public SourceTreeScanner(String rootPath, String glob) {
+        this.root = Paths.get(rootPath);
+        if (!Files.isDirectory(root)) {
+            _.abort("Source tree " + rootPath + " should be a directory");
+        }
+
+        final boolean matchFileName = !glob.contains("/");
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        final List<Path> found = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    Path name = matchFileName ? file.getFileName() : root.relativize(file);
+                    if (attrs.isRegularFile() && matcher.matches(name)) {
+                        found.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException x) {
+                    System.err.format("IOException: %s%n", x);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+        // the order of a directory listing depends on the file system
+        Collections.sort(found);
+        this.paths = found;
+    }
+
+    /**
+     * @return the matching files, sorted by path
+     */
+    public List<Path> getPaths() {
+        return paths;
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * @return the artifacts of the matching files, each file is read when the iterator reaches it
+     */
+    public Iterable<Artifact> artifacts() {
+        return new Iterable<Artifact>() {
+            @Override
+            public Iterator<Artifact> iterator() {
+                return new Iterator<Artifact>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < paths.size();
+                    }
+
+                    @Override
+                    public Artifact next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Path path = paths.get(next++);
+                        return new Artifact(getId(path), readFile(path));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @param pool pool the files are read on, or null to read them one after another
+     * @return the artifacts of all matching files, in path order
+     */
+    public ArtifactsCollection getCollection(ForkJoinPool pool) {
+        String[] texts = new String[paths.size()];
+        if (pool == null) {
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = readFile(paths.get(i));
+            }
+        } else if (texts.length > 0) {
+            pool.invoke(new ReadTask(texts, 0, texts.length));
+        }
+
+        ArtifactsCollection collection = new ArtifactsCollection();
+        for (int i = 0; i < texts.length; i++) {
+            String id = getId(paths.get(i));
+            collection.put(id, new Artifact(id, texts[i]));
+        }
+        return collection;
+    }
+
+    private String getId(Path path) {
+        String relative = root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), ".");
+        int extension = relative.lastIndexOf('.');
+        int fileName = relative.length() - path.getFileName().toString().length();
+        return extension > fileName ? relative.substring(0, extension) : relative;
+    }
+
+    /**
+     * @return the UTF-8 text of the file, or null if it can't be read
+     */
+    public static String readFile(Path path) {
+        try {
+            return new String(Files.readAllBytes(path), UTF8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private class ReadTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        // below this many files a range is read on the current worker
+        private static final int THRESHOLD = 4;
+
+        private final String[] texts;
+        private final int from;
+        private final int to;
+
+        ReadTask(String[] texts, int from, int to) {
+            this.texts = texts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    texts[i] = readFile(paths.get(i));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ReadTask(texts, from, middle), new ReadTask(texts, middle, to));
+            }
+        }
+    }
+}
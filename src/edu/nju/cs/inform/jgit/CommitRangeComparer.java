@@ -0,0 +1,158 @@
+package edu.nju.cs.inform.jgit;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.io.PreprocessingCache;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the java files of two commits of a repository. Only the files the tree diff of the two
+ * commits reports are read, straight from the object database, and parsed, so the cost follows
+ * the size of the change instead of the size of the project.
+ *
+ * Untouched files are the same in both commits and add no element changes. Their packages are
+ * still in both commits, so the package of an added or removed file only counts as changed if
+ * its directory is missing from the other commit.
+ */
+public class CommitRangeComparer {
+
+    private static final String postfixName = ".java";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+    private List<String> changedFilePaths;
+    private CodeElementsComparer codeElementsComparer;
+
+    /**
+     * @throws IllegalArgumentException if a revision does not resolve to an object of the repository
+     */
+    public CommitRangeComparer(Repository repository, String oldRevision, String newRevision) throws IOException {
+        this(repository, oldRevision, newRevision, null, null);
+    }
+
+    /**
+     * @param pool  pool the changed files are preprocessed and parsed on, or null
+     * @param cache cache of preprocessed and parsed files, or null
+     */
+    public CommitRangeComparer(Repository repository, String oldRevision, String newRevision,
+                               ForkJoinPool pool, PreprocessingCache cache) throws IOException {
+        ArtifactsCollection newVersionCodeCollection = new ArtifactsCollection();
+        ArtifactsCollection oldVersionCodeCollection = new ArtifactsCollection();
+        Set<String> unchangedPackages = new LinkedHashSet<>();
+        changedFilePaths = new ArrayList<>();
+
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            RevTree oldTree = revWalk.parseCommit(resolve(repository, oldRevision)).getTree();
+            RevTree newTree = revWalk.parseCommit(resolve(repository, newRevision)).getTree();
+
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.addTree(oldTree);
+                treeWalk.addTree(newTree);
+                treeWalk.setRecursive(true);
+                // subtrees with the same id in both commits are skipped without being read
+                treeWalk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(postfixName)));
+
+                while (treeWalk.next()) {
+                    String path = treeWalk.getPathString();
+                    String id = path.substring(0, path.length() - postfixName.length());
+                    changedFilePaths.add(path);
+
+                    String oldSource = readBlob(reader, treeWalk, 0);
+                    String newSource = readBlob(reader, treeWalk, 1);
+                    if (oldSource != null) {
+                        oldVersionCodeCollection.put(id, new Artifact(id, oldSource));
+                    }
+                    if (newSource != null) {
+                        newVersionCodeCollection.put(id, new Artifact(id, newSource));
+                    }
+
+                    if (oldSource == null && containsDirectory(reader, oldTree, path)) {
+                        addPackageName(newSource, unchangedPackages);
+                    } else if (newSource == null && containsDirectory(reader, newTree, path)) {
+                        addPackageName(oldSource, unchangedPackages);
+                    }
+                }
+            }
+        }
+
+        codeElementsComparer = new CodeElementsComparer(newVersionCodeCollection, oldVersionCodeCollection, pool, cache);
+        for (String packageName : unchangedPackages) {
+            codeElementsComparer.getNewVersionCodeElements().addPackage(packageName);
+            codeElementsComparer.getOldVersionCodeElements().addPackage(packageName);
+        }
+    }
+
+    /**
+     * Element changes between the two commits, see CodeElementsComparer.diffElements()
+     */
+    public void diff() {
+        codeElementsComparer.diffElements();
+    }
+
+    public CodeElementsComparer getCodeElementsComparer() {
+        return codeElementsComparer;
+    }
+
+    /**
+     * @return paths of the java files that differ between the two commits
+     */
+    public List<String> getChangedFilePaths() {
+        return changedFilePaths;
+    }
+
+    private static ObjectId resolve(Repository repository, String revision) throws IOException {
+        ObjectId objectId = repository.resolve(revision);
+        if (objectId == null) {
+            throw new IllegalArgumentException("Can't resolve revision " + revision);
+        }
+        return objectId;
+    }
+
+    /**
+     * @return the text of the file in the n-th tree, null if the file is not in that tree
+     */
+    private static String readBlob(ObjectReader reader, TreeWalk treeWalk, int n) throws IOException {
+        if (treeWalk.getFileMode(n) == FileMode.MISSING) {
+            return null;
+        }
+        return new String(reader.open(treeWalk.getObjectId(n)).getBytes(), UTF8);
+    }
+
+    private static boolean containsDirectory(ObjectReader reader, RevTree tree, String filePath) throws IOException {
+        int slash = filePath.lastIndexOf('/');
+        if (slash < 0) {
+            return true;
+        }
+        try (TreeWalk directoryWalk = TreeWalk.forPath(reader, filePath.substring(0, slash), tree)) {
+            return directoryWalk != null;
+        }
+    }
+
+    private static void addPackageName(String javaSource, Set<String> packageNames) {
+        Matcher m = PACKAGE_DECLARATION.matcher(javaSource);
+        if (m.find()) {
+            packageNames.add(m.group(1));
+        }
+    }
+}
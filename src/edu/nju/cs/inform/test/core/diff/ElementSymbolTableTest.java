@@ -0,0 +1,136 @@
+package edu.nju.cs.inform.test.core.diff;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.diff.SourceCodeElements;
+import edu.nju.cs.inform.core.relation.CallRelationGraph;
+import edu.nju.cs.inform.core.relation.graph.CodeVertex;
+import edu.nju.cs.inform.core.type.ChangeType;
+import edu.nju.cs.inform.core.type.CodeElementChange;
+import edu.nju.cs.inform.core.type.ElementType;
+import edu.nju.cs.inform.io.ChangedArtifacts;
+import edu.nju.cs.inform.util.ElementIdSet;
+import edu.nju.cs.inform.util.ElementSymbolTable;
+import edu.nju.cs.inform.util.JavaElement;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ElementSymbolTableTest {
+
+    private static final String NEW_VERSION = "data/sample/AquaLush_Change4";
+    private static final String OLD_VERSION = "data/sample/AquaLush_Change3";
+
+    @Test
+    public void testPartsAreTheOnesJavaElementGives() throws Exception {
+        ElementSymbolTable symbols = new ElementSymbolTable();
+        String method = "edu.nju.cs.Zone.open";
+        int id = symbols.intern(method);
+
+        assertEquals(method, symbols.getName(id));
+        assertEquals("edu.nju.cs.Zone", symbols.getName(symbols.getParent(id)));
+        assertEquals(JavaElement.getClassName(method), symbols.getName(symbols.getClassId(id)));
+        assertEquals(JavaElement.getPackageName(method), symbols.getName(symbols.getPackageId(id)));
+        assertEquals(JavaElement.getIdentifier(method), symbols.getIdentifier(id));
+        assertEquals(id, symbols.intern(new String(method)));
+
+        // looking a name up interns nothing
+        int size = symbols.size();
+        assertEquals(ElementSymbolTable.NONE, symbols.getId("edu.nju.cs.Zone.close"));
+        JavaElement.getClassName("edu.nju.cs.Zone.close");
+        assertEquals(size, symbols.size());
+    }
+
+    @Test
+    public void testEveryRunHasItsOwnTable() throws Exception {
+        CodeElementsComparer first = new CodeElementsComparer(NEW_VERSION, OLD_VERSION);
+        CodeElementsComparer second = new CodeElementsComparer(NEW_VERSION, OLD_VERSION);
+        assertNotSame(first.getSymbols(), second.getSymbols());
+        assertSame(first.getSymbols(), first.getNewVersionCodeElements().getSymbols());
+        assertSame(first.getSymbols(), first.getOldVersionCodeElements().getSymbols());
+        assertEquals(first.getSymbols().size(), second.getSymbols().size());
+    }
+
+    @Test
+    public void testIdsAgreeWithNames() throws Exception {
+        CodeElementsComparer comparer = new CodeElementsComparer(NEW_VERSION, OLD_VERSION);
+        comparer.diff();
+        ElementSymbolTable symbols = comparer.getSymbols();
+
+        for (SourceCodeElements elements : new SourceCodeElements[]{comparer.getNewVersionCodeElements(),
+                comparer.getOldVersionCodeElements()}) {
+            assertSameElements(symbols, elements.getPackagesList(), elements.getPackageIds());
+            assertSameElements(symbols, elements.getClassesList(), elements.getClassIds());
+            assertSameElements(symbols, elements.getMethodsList(), elements.getMethodIds());
+            assertSameElements(symbols, elements.getFieldsList(), elements.getFieldIds());
+            assertSameElements(symbols, elements.getMethodSignaturesList(), elements.getMethodSignatureIds());
+        }
+
+        // added and removed methods by id are the ones the name sets give, less those of added and removed classes
+        SourceCodeElements newVersion = comparer.getNewVersionCodeElements();
+        SourceCodeElements oldVersion = comparer.getOldVersionCodeElements();
+        Set<String> changedClasses = new HashSet<>(difference(newVersion.getClassesList(), oldVersion.getClassesList()));
+        changedClasses.addAll(difference(oldVersion.getClassesList(), newVersion.getClassesList()));
+        Set<String> expected = new TreeSet<>();
+        for (String method : difference(newVersion.getMethodsList(), oldVersion.getMethodsList())) {
+            if (!changedClasses.contains(JavaElement.getClassName(method))) {
+                expected.add(method + " " + ChangeType.Added);
+            }
+        }
+        for (String method : difference(oldVersion.getMethodsList(), newVersion.getMethodsList())) {
+            if (!changedClasses.contains(JavaElement.getClassName(method))) {
+                expected.add(method + " " + ChangeType.Removed);
+            }
+        }
+        Set<String> actual = new TreeSet<>();
+        for (CodeElementChange change : comparer.getCodeElementChangesList()) {
+            if (change.getElementType() == ElementType.Method && change.getChangeType() != ChangeType.Modified) {
+                actual.add(change.getElementName() + " " + change.getChangeType());
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+
+        ChangedArtifacts changedArtifacts = new ChangedArtifacts();
+        changedArtifacts.parse(comparer);
+        assertFalse(changedArtifacts.getWholeChangedArtifactList().isEmpty());
+        for (String artifact : changedArtifacts.getWholeChangedArtifactList()) {
+            assertEquals(artifact, changedArtifacts.getAddedArtifactList().contains(artifact)
+                    && changedArtifacts.getMethodsList().contains(artifact), changedArtifacts.isAddedMethod(artifact));
+            assertEquals(artifact, changedArtifacts.getRemovedArtifactList().contains(artifact)
+                    && changedArtifacts.getFieldsList().contains(artifact), changedArtifacts.isRemovedField(artifact));
+            assertEquals(artifact, changedArtifacts.getModifiedArtifactList().contains(artifact),
+                    changedArtifacts.isModifiedArtifact(artifact));
+            assertEquals(artifact, changedArtifacts.getMethodsList().contains(artifact), changedArtifacts.isMethod(artifact));
+        }
+        assertFalse(changedArtifacts.isMethod("irrigation.Zone.noSuchMethod"));
+
+        CallRelationGraph graph = new CallRelationGraph(comparer.getChangedCodeElementsRelationInfo());
+        assertTrue(graph.getVertexesNum() > 0);
+        for (CodeVertex vertex : graph.getVertexes().values()) {
+            assertSame(vertex, graph.getCodeVertexByName(vertex.getName()));
+        }
+        assertNull(graph.getCodeVertexByName("irrigation.Zone.noSuchMethod"));
+    }
+
+    private static void assertSameElements(ElementSymbolTable symbols, Set<String> names, ElementIdSet ids) {
+        assertEquals(names.size(), ids.size());
+        Iterator<String> it = names.iterator();
+        for (int i = 0; i < ids.size(); i++) {
+            String name = it.next();
+            assertEquals(symbols.getId(name), ids.get(i));
+            assertSame(name, symbols.getName(ids.get(i)));
+        }
+    }
+
+    private static List<String> difference(Set<String> names, Set<String> others) {
+        List<String> difference = new ArrayList<>();
+        for (String name : names) {
+            if (!others.contains(name)) {
+                difference.add(name);
+            }
+        }
+        return difference;
+    }
+}
@@ -0,0 +1,103 @@
+package edu.nju.cs.inform.test.core.diff;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.test.util.SourceVersions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.nju.cs.inform.test.util.SourceVersions.describe;
+import static org.junit.Assert.assertEquals;
+
+public class ModifiedElementsTest {
+
+    private static final String OLD_ZONE = "package irrigation;\n"
+            + "\n"
+            + "public class Zone {\n"
+            + "    private int level = 1;\n"
+            + "    private int number = 0;\n"
+            + "\n"
+            + "    /** opens the valve */\n"
+            + "    public void open() {\n"
+            + "        level = 2;\n"
+            + "    }\n"
+            + "\n"
+            + "    public void close() {\n"
+            + "        level = 0;\n"
+            + "    }\n"
+            + "\n"
+            + "    public int report() { return level; }\n"
+            + "\n"
+            + "    public void set(int l) { level = l; }\n"
+            + "\n"
+            + "    public void set(String l) { level = Integer.parseInt(l); }\n"
+            + "}\n";
+
+    // open() changes its body, close() only its layout and comments, level its initializer,
+    // one overload of set changes
+    private static final String NEW_ZONE = "package irrigation;\n"
+            + "\n"
+            + "public class Zone {\n"
+            + "    private int level = 3;\n"
+            + "    private int number = 0;\n"
+            + "\n"
+            + "    /** opens the valve */\n"
+            + "    public void open() {\n"
+            + "        level = 5;\n"
+            + "    }\n"
+            + "\n"
+            + "    /** closes the valve */\n"
+            + "    public void close()\n"
+            + "    {\n"
+            + "        // shut\n"
+            + "        level   =   0;\n"
+            + "    }\n"
+            + "\n"
+            + "    public int report() { return level; }\n"
+            + "\n"
+            + "    public void set(int l) { level = l; }\n"
+            + "\n"
+            + "    public void set(String l) { level = Integer.valueOf(l); }\n"
+            + "}\n";
+
+    @Rule
+    public SourceVersions versions = new SourceVersions();
+
+    private File newVersion;
+    private File oldVersion;
+
+    @Before
+    public void setUp() throws Exception {
+        newVersion = versions.newVersion("new", "Zone.java", NEW_ZONE);
+        oldVersion = versions.newVersion("old", "Zone.java", OLD_ZONE);
+    }
+
+    @Test
+    public void testModifiedByFingerprint() throws Exception {
+        CodeElementsComparer comparer = new CodeElementsComparer(newVersion.getPath(), oldVersion.getPath());
+        comparer.diffElements();
+
+        List<String> expected = Arrays.asList(
+                "irrigation.Zone.level Field Modified",
+                "irrigation.Zone.open Method Modified",
+                "irrigation.Zone.set Method Modified");
+        assertEquals(expected, describe(comparer.getCodeElementChangesList()));
+
+        // only the changed overload of set
+        List<String> signatures = Arrays.asList(
+                "irrigation.Zone.open() Method Modified",
+                "irrigation.Zone.set(String) Method Modified");
+        assertEquals(signatures, describe(comparer.getMethodSignatureChangesList()));
+    }
+
+    @Test
+    public void testSignaturesOnlyReportsNoModifications() throws Exception {
+        CodeElementsComparer comparer = new CodeElementsComparer(newVersion.getPath(), oldVersion.getPath(), null, null, false);
+        comparer.diffElements();
+        assertEquals(0, comparer.getCodeElementChangesList().size());
+    }
+}
@@ -0,0 +1,75 @@
+package edu.nju.cs.inform.test.core.diff;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.test.util.SourceVersions;
+import edu.nju.cs.inform.util._;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static edu.nju.cs.inform.test.util.SourceVersions.describe;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Both versions laid out as src/main/java/<package>/<Class>.java next to a META-INF directory
+ * compare as the flat sample directories do.
+ */
+public class NestedSourceTreeTest {
+
+    private static final String NEW_VERSION = "data/sample/AquaLush_Change4";
+    private static final String OLD_VERSION = "data/sample/AquaLush_Change3";
+
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+    @Rule
+    public SourceVersions versions = new SourceVersions();
+
+    private File newVersion;
+    private File oldVersion;
+
+    @Before
+    public void setUp() throws Exception {
+        newVersion = nest(NEW_VERSION, versions.newDirectory("tree"));
+        oldVersion = nest(OLD_VERSION, versions.newDirectory("tree"));
+    }
+
+    @Test
+    public void testNestedEqualsFlat() throws Exception {
+        CodeElementsComparer flat = new CodeElementsComparer(NEW_VERSION, OLD_VERSION);
+        flat.diff();
+        CodeElementsComparer nested = new CodeElementsComparer(newVersion.getPath(), oldVersion.getPath());
+        nested.diff();
+
+        assertEquals(describe(flat.getCodeElementChangesList()), describe(nested.getCodeElementChangesList()));
+        assertEquals(describe(flat.getMethodSignatureChangesList()), describe(nested.getMethodSignatureChangesList()));
+        assertEquals(new TreeMap<>(flat.getNewVersionCallRelations().getCallGraphMap()),
+                new TreeMap<>(nested.getNewVersionCallRelations().getCallGraphMap()));
+        assertEquals(new TreeMap<>(flat.getOldVersionCallRelations().getCallGraphMap()),
+                new TreeMap<>(nested.getOldVersionCallRelations().getCallGraphMap()));
+    }
+
+    private static File nest(String flatDir, File root) throws IOException {
+        File metaInf = new File(root, "META-INF");
+        metaInf.mkdirs();
+        Files.write(new File(metaInf, "MANIFEST.MF").toPath(), "Manifest-Version: 1.0\n".getBytes("UTF-8"));
+
+        for (File f : new File(flatDir).listFiles()) {
+            if (!f.getName().endsWith(".java")) {
+                continue;
+            }
+            Matcher matcher = PACKAGE.matcher(_.readFile(f.getPath()));
+            String packageDir = matcher.find() ? matcher.group(1).replace('.', File.separatorChar) : "";
+            File dir = new File(root, "src" + File.separator + "main" + File.separator + "java" + File.separator + packageDir);
+            dir.mkdirs();
+            Files.copy(f.toPath(), new File(dir, f.getName()).toPath());
+        }
+        return root;
+    }
+}
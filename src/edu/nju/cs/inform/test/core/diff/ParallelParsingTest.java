@@ -0,0 +1,69 @@
+package edu.nju.cs.inform.test.core.diff;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.diff.SourceCodeElements;
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.io.ArtifactsReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static edu.nju.cs.inform.test.util.SourceVersions.describe;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelParsingTest {
+
+    private static final String NEW_VERSION = "data/sample/AquaLush_Change4";
+    private static final String OLD_VERSION = "data/sample/AquaLush_Change3";
+
+    @Test
+    public void testParallelEqualsSequential() throws Exception {
+        ArtifactsCollection newVersion = ArtifactsReader.getCollections(NEW_VERSION, ".java");
+        ArtifactsCollection oldVersion = ArtifactsReader.getCollections(OLD_VERSION, ".java");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SourceCodeElements[] sequential = SourceCodeElements.parseVersions(null, null, null, newVersion, oldVersion);
+            SourceCodeElements[] parallel = SourceCodeElements.parseVersions(pool, null, null, newVersion, oldVersion);
+            SourceCodeElements[] shared = SourceCodeElements.parseVersions(pool, null, new CompilationUnitRegistry(),
+                    newVersion, oldVersion);
+            for (int v = 0; v < 2; v++) {
+                assertSameElements(sequential[v], parallel[v]);
+                assertSameElements(sequential[v], shared[v]);
+            }
+
+            CodeElementsComparer sequentialComparer = new CodeElementsComparer(NEW_VERSION, OLD_VERSION);
+            sequentialComparer.diffElements();
+            CodeElementsComparer parallelComparer = new CodeElementsComparer(NEW_VERSION, OLD_VERSION, pool);
+            parallelComparer.diffElements();
+            assertEquals(describe(sequentialComparer.getCodeElementChangesList()),
+                    describe(parallelComparer.getCodeElementChangesList()));
+            assertEquals(describe(sequentialComparer.getMethodSignatureChangesList()),
+                    describe(parallelComparer.getMethodSignatureChangesList()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameElements(SourceCodeElements expected, SourceCodeElements actual) {
+        assertEquals(new ArrayList<>(expected.getPackagesList()), new ArrayList<>(actual.getPackagesList()));
+        assertEquals(new ArrayList<>(expected.getClassesList()), new ArrayList<>(actual.getClassesList()));
+        assertEquals(new ArrayList<>(expected.getMethodsList()), new ArrayList<>(actual.getMethodsList()));
+        assertEquals(new ArrayList<>(expected.getFieldsList()), new ArrayList<>(actual.getFieldsList()));
+        assertEquals(new ArrayList<>(expected.getMethodSignaturesList()), new ArrayList<>(actual.getMethodSignaturesList()));
+        for (String method : expected.getMethodsList()) {
+            assertEquals(method, expected.getMethodBody(method), actual.getMethodBody(method));
+            assertEquals(method, expected.getMethodComments(method), actual.getMethodComments(method));
+            assertEquals(method, expected.getMethodParameters(method), actual.getMethodParameters(method));
+            assertEquals(method, expected.getFingerprint(method), actual.getFingerprint(method));
+        }
+        for (String field : expected.getFieldsList()) {
+            assertEquals(field, expected.getFingerprint(field), actual.getFingerprint(field));
+        }
+        for (String className : expected.getClassesList()) {
+            assertEquals(className, expected.getClassComments(className), actual.getClassComments(className));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package edu.nju.cs.inform.test.core.diff;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.type.ChangeType;
+import edu.nju.cs.inform.core.type.CodeElementChange;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SignaturesOnlyComparerTest {
+
+    private static final String NEW_VERSION = "data/sample/AquaLush_Change4";
+    private static final String OLD_VERSION = "data/sample/AquaLush_Change3";
+
+    @Test(expected = IllegalStateException.class)
+    public void testDiffNeedsMethodBodies() throws Exception {
+        new CodeElementsComparer(NEW_VERSION, OLD_VERSION, null, null, false).diff();
+    }
+
+    @Test
+    public void testDiffElementsWithoutBodies() throws Exception {
+        CodeElementsComparer comparer = new CodeElementsComparer(NEW_VERSION, OLD_VERSION, null, null, false);
+        comparer.diffElements();
+        assertFalse(comparer.getCodeElementChangesList().isEmpty());
+        for (CodeElementChange change : comparer.getCodeElementChangesList()) {
+            assertTrue(change.getElementName(), change.getChangeType() != ChangeType.Modified);
+        }
+    }
+}
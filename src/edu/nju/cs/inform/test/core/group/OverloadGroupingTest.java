@@ -0,0 +1,87 @@
+package edu.nju.cs.inform.test.core.group;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.type.ChangeType;
+import edu.nju.cs.inform.io.ChangedArtifacts;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * A method that gains an overload is a signature change, grouping keeps it like an added method
+ * while a method whose body changed is dropped as before.
+ */
+public class OverloadGroupingTest {
+
+    private static final String OLD_ZONE = "package irrigation;\n"
+            + "\n"
+            + "public class Zone {\n"
+            + "    private int level;\n"
+            + "\n"
+            + "    public void set(int l) { level = l; }\n"
+            + "\n"
+            + "    public void open() { level = 1; }\n"
+            + "}\n";
+
+    private static final String NEW_ZONE = "package irrigation;\n"
+            + "\n"
+            + "public class Zone {\n"
+            + "    private int level;\n"
+            + "\n"
+            + "    public void set(int l) { level = l; }\n"
+            + "\n"
+            + "    public void set(String l) { level = Integer.parseInt(l); }\n"
+            + "\n"
+            + "    public void open() { level = 2; }\n"
+            + "}\n";
+
+    private File newVersion;
+    private File oldVersion;
+
+    @Before
+    public void setUp() throws Exception {
+        newVersion = Files.createTempDirectory("new").toFile();
+        oldVersion = Files.createTempDirectory("old").toFile();
+        Files.write(new File(newVersion, "Zone.java").toPath(), NEW_ZONE.getBytes("UTF-8"));
+        Files.write(new File(oldVersion, "Zone.java").toPath(), OLD_ZONE.getBytes("UTF-8"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File dir : new File[]{newVersion, oldVersion}) {
+            new File(dir, "Zone.java").delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testSignatureChangesReachGrouping() throws Exception {
+        CodeElementsComparer comparer = new CodeElementsComparer(newVersion.getPath(), oldVersion.getPath());
+        comparer.diff();
+
+        ChangedArtifacts changedArtifacts = new ChangedArtifacts();
+        changedArtifacts.parse(comparer);
+        Map<String, ChangeType> signatureChanges = new LinkedHashMap<>();
+        signatureChanges.put("irrigation.Zone.set(String)", ChangeType.Added);
+        signatureChanges.put("irrigation.Zone.open()", ChangeType.Modified);
+        assertEquals(signatureChanges, changedArtifacts.getSignatureChanges());
+        assertTrue(changedArtifacts.isModifiedMethod("irrigation.Zone.set"));
+        assertTrue(changedArtifacts.isOverloadChangedMethod("irrigation.Zone.set"));
+        assertFalse(changedArtifacts.isOverloadChangedMethod("irrigation.Zone.open"));
+
+        boolean setGrouped = false;
+        for (Set<String> group : comparer.getElementsInGroupList().values()) {
+            setGrouped |= group.contains("irrigation.Zone.set");
+            assertFalse(group.contains("irrigation.Zone.open"));
+        }
+        assertTrue(setGrouped);
+    }
+}
@@ -0,0 +1,133 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.InvertedIndex;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+import edu.nju.cs.inform.core.type.TopKSelector;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static edu.nju.cs.inform.test.util.RandomArtifacts.randomCollection;
+import static edu.nju.cs.inform.test.util.RandomArtifacts.terms;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class InvertedIndexSearchTest {
+
+    // few distinct weights, so many documents tie and sums like 0.1 + 0.2 round
+    private static final double[] WEIGHTS = {0.1, 0.2, 0.3, 0.7, 1.0};
+
+    // few distinct priors as well, 0 included, so documents without shared terms tie too
+    private static final double[] PRIORS = {0.0, -0.05, -0.1, -0.3};
+
+    @Test
+    public void testSearchEqualsExhaustiveTopK() throws Exception {
+        Random random = new Random(7);
+        String[] vocabulary = terms("t", 12);
+        for (int round = 0; round < 50; round++) {
+            SparseTermDocumentMatrix targets = new SparseTermDocumentMatrix(randomCollection("doc", 40, vocabulary, 1, 6, random));
+            SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(randomCollection("query", 10, vocabulary, 1, 6, random),
+                    targets.getVocabulary());
+            double[] weights = randomWeights(targets.NumNonZeros(), random);
+            double[] queryWeights = randomWeights(queries.NumNonZeros(), random);
+            assertSearchEqualsExhaustive(new InvertedIndex(targets, weights, allRows(targets)), queries, queryWeights, false);
+        }
+    }
+
+    /**
+     * With priors every document has a score, also those sharing no term with the query.
+     */
+    @Test
+    public void testSearchWithPriorsEqualsExhaustiveTopK() throws Exception {
+        Random random = new Random(12);
+        // queries also use terms the documents do not know
+        String[] documentVocabulary = terms("t", 12);
+        String[] queryVocabulary = terms("t", 16);
+        for (int round = 0; round < 50; round++) {
+            SparseTermDocumentMatrix targets = new SparseTermDocumentMatrix(randomCollection("doc", 40, documentVocabulary, 1, 6, random));
+            SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(randomCollection("query", 10, queryVocabulary, 1, 6, random),
+                    targets.getVocabulary());
+            double[] weights = randomWeights(targets.NumNonZeros(), random);
+            double[] priors = new double[targets.NumDocs()];
+            for (int j = 0; j < priors.length; j++) {
+                priors[j] = PRIORS[random.nextInt(PRIORS.length)];
+            }
+            double[] queryWeights = randomWeights(queries.NumNonZeros(), random);
+            assertSearchEqualsExhaustive(new InvertedIndex(targets, weights, priors, allRows(targets)), queries, queryWeights, true);
+        }
+    }
+
+    private static void assertSearchEqualsExhaustive(InvertedIndex index, SparseTermDocumentMatrix queries,
+                                                     double[] queryWeights, boolean withPriors) {
+        for (int topK : new int[]{1, 3, 10, 100}) {
+            for (int row = 0; row < queries.NumDocs(); row++) {
+                double[] scores = new double[index.NumDocs()];
+                index.accumulate(queries, queryWeights, row, scores);
+                TopKSelector exhaustive = new TopKSelector(topK);
+                for (int d = 0; d < scores.length; d++) {
+                    // the weights are positive, so only documents sharing a term score above 0
+                    if (withPriors || scores[d] > 0.0) {
+                        exhaustive.offer(d, scores[d]);
+                    }
+                }
+                TopKSelector searched = new TopKSelector(topK);
+                index.search(queries, queryWeights, row, searched);
+
+                int[] expectedDocs = new int[topK];
+                double[] expectedScores = new double[topK];
+                int[] docs = new int[topK];
+                double[] searchedScores = new double[topK];
+                int expectedCount = exhaustive.drainSorted(expectedDocs, expectedScores);
+                assertEquals(expectedCount, searched.drainSorted(docs, searchedScores));
+                assertArrayEquals(expectedDocs, docs);
+                assertArrayEquals(expectedScores, searchedScores, 0.0);
+            }
+        }
+    }
+
+    /**
+     * A document whose bound only equals the selector's minimum still wins the tie on a lower
+     * index, the slack in the bound check must let it be scored.
+     */
+    @Test
+    public void testBoundRoundingSlack() throws Exception {
+        ArtifactsCollection documents = new ArtifactsCollection();
+        documents.put("d0", new Artifact("d0", "c"));
+        documents.put("d1", new Artifact("d1", "a b"));
+        SparseTermDocumentMatrix targets = new SparseTermDocumentMatrix(documents);
+        // d0: c 0.3, d1: a 0.1, b 0.2
+        InvertedIndex index = new InvertedIndex(targets, new double[]{0.3, 0.1, 0.2}, allRows(targets));
+
+        ArtifactsCollection query = new ArtifactsCollection();
+        query.put("q", new Artifact("q", "c a b"));
+        SparseTermDocumentMatrix queries = new SparseTermDocumentMatrix(query, targets.getVocabulary());
+
+        TopKSelector selector = new TopKSelector(1);
+        selector.offer(5, 0.1 + 0.2);
+        index.search(queries, new double[]{1.0, 1.0, 1.0}, 0, selector);
+
+        int[] docs = new int[1];
+        double[] scores = new double[1];
+        selector.drainSorted(docs, scores);
+        // d1 scores 0.1 + 0.2 as well and wins the tie against the higher index
+        assertEquals(1, docs[0]);
+    }
+
+    private static double[] randomWeights(int length, Random random) {
+        double[] weights = new double[length];
+        for (int k = 0; k < length; k++) {
+            weights[k] = WEIGHTS[random.nextInt(WEIGHTS.length)];
+        }
+        return weights;
+    }
+
+    private static int[] allRows(SparseTermDocumentMatrix matrix) {
+        int[] rows = new int[matrix.NumDocs()];
+        for (int j = 0; j < rows.length; j++) {
+            rows[j] = j;
+        }
+        return rows;
+    }
+}
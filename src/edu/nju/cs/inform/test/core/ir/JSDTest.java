@@ -0,0 +1,67 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.IR;
+import edu.nju.cs.inform.core.ir.IRModelConst;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import edu.nju.cs.inform.core.type.TermDocumentMatrix;
+import edu.nju.cs.inform.test.util.RandomArtifacts;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class JSDTest {
+
+    @Test
+    public void testSparseEqualsDense() throws Exception {
+        Random random = new Random(8);
+        ArtifactsCollection source = RandomArtifacts.randomCollection("change", 15, random);
+        ArtifactsCollection target = RandomArtifacts.randomCollection("req", 25, random);
+
+        SimilarityMatrix sparse = IR.compute(source, target, IRModelConst.JSD);
+
+        List<TermDocumentMatrix> matrices = TermDocumentMatrix.Equalize(new TermDocumentMatrix(source), new TermDocumentMatrix(target));
+        for (int i = 0; i < matrices.get(0).NumDocs(); i++) {
+            for (int j = 0; j < matrices.get(1).NumDocs(); j++) {
+                double dense = denseSimilarity(matrices.get(0).getDocument(i), matrices.get(1).getDocument(j));
+                double score = sparse.getScoreForLink(matrices.get(0).getDocumentName(i), matrices.get(1).getDocumentName(j));
+                assertEquals(dense, score, 1e-12);
+            }
+        }
+    }
+
+    /**
+     * 1 - JS(P1, P2) over the full dense vectors, as the model computed it before the sparse rows
+     */
+    private static double denseSimilarity(double[] document1, double[] document2) {
+        double sum1 = 0;
+        double sum2 = 0;
+        for (int i = 0; i < document1.length; i++) {
+            sum1 += document1[i];
+            sum2 += document2[i];
+        }
+
+        double[] distribution1 = new double[document1.length];
+        double[] distribution2 = new double[document2.length];
+        double[] mean = new double[document1.length];
+        for (int i = 0; i < document1.length; i++) {
+            distribution1[i] = document1[i] / sum1;
+            distribution2[i] = document2[i] / sum2;
+            mean[i] = 0.5 * (distribution1[i] + distribution2[i]);
+        }
+        return 1 - (entropy(mean) - (entropy(distribution1) + entropy(distribution2)) / 2);
+    }
+
+    private static double entropy(double[] distribution) {
+        double entropy = 0;
+        for (double p : distribution) {
+            if (p > 0) {
+                entropy -= p * (Math.log(p) / Math.log(2.0));
+            }
+        }
+        return entropy;
+    }
+}
@@ -0,0 +1,64 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.KeywordsScorer;
+import edu.nju.cs.inform.core.ir.VSM_Keywords;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+import edu.nju.cs.inform.test.util.RandomArtifacts;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeywordsScorerTest {
+
+    @Test
+    public void testSharedIdfEqualsUnionIdf() throws Exception {
+        Random random = new Random(10);
+        ArtifactsCollection code = RandomArtifacts.randomCollection("doc", 30, random);
+        KeywordsScorer scorer = new KeywordsScorer(code);
+
+        // the first change collection shares ids doc0..doc4 with the code, the second none
+        ArtifactsCollection overlapping = RandomArtifacts.randomCollection("doc", 5, random);
+        ArtifactsCollection changes = RandomArtifacts.randomCollection("change", 8, random);
+        for (ArtifactsCollection change : new ArtifactsCollection[]{overlapping, changes}) {
+            VSM_Keywords keywords = scorer.score(change);
+            for (Artifact artifact : change.values()) {
+                Map<String, Double> expected = unionScores(change, code, artifact);
+                Map<String, Double> actual = keywords.getTermsScoreInDoc(artifact.id);
+                for (Map.Entry<String, Double> entry : expected.entrySet()) {
+                    assertEquals(artifact.id + " " + entry.getKey(), entry.getValue(), actual.get(entry.getKey()), 1e-12);
+                }
+            }
+        }
+    }
+
+    /**
+     * TF-IDF of the terms of one change document, with the IDF over the change and code
+     * collections put into one map, as VSM_Keywords computed it before the scorer was shared
+     */
+    private static Map<String, Double> unionScores(ArtifactsCollection change, ArtifactsCollection code, Artifact artifact) {
+        ArtifactsCollection both = new ArtifactsCollection();
+        both.putAll(change);
+        both.putAll(code);
+        SparseTermDocumentMatrix union = new SparseTermDocumentMatrix(both);
+        int[] df = union.getDocumentFrequencies();
+
+        String[] terms = artifact.text.split(" ");
+        Map<String, Double> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.put(term, counts.containsKey(term) ? counts.get(term) + 1 : 1.0);
+        }
+        Map<String, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Double> entry : counts.entrySet()) {
+            int documentFrequency = df[union.getTermIndex(entry.getKey())];
+            double idf = documentFrequency <= 0 ? 0.0 : Math.log(union.NumDocs() / (double) documentFrequency);
+            scores.put(entry.getKey(), entry.getValue() / terms.length * idf);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,127 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.IR;
+import edu.nju.cs.inform.core.ir.IRModelConst;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import edu.nju.cs.inform.test.util.RandomArtifacts;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LSITest {
+
+    /**
+     * With fewer targets than the rank nothing is truncated, the reduced space keeps every inner
+     * product of the TF-IDF vectors and only rescales each query, so every source ranks its
+     * targets as plain TF-IDF cosine does.
+     */
+    @Test
+    public void testFullRankGivesTfIdfCosineOrder() throws Exception {
+        Random random = new Random(9);
+        ArtifactsCollection source = RandomArtifacts.randomCollection("change", 10, random);
+        ArtifactsCollection target = RandomArtifacts.randomCollection("req", 20, random);
+        assertSameOrder(source, target, IR.compute(source, target, IRModelConst.LSI));
+
+        // a changed requirement must not be scored with the basis of the old texts
+        target.put("req3", new Artifact("req3", "term1 term2 term3"));
+        assertSameOrder(source, target, IR.compute(source, target, IRModelConst.LSI));
+    }
+
+    private static void assertSameOrder(ArtifactsCollection source, ArtifactsCollection target, SimilarityMatrix lsi) {
+        Map<String, Map<String, Double>> targetVectors = new HashMap<>();
+        Map<String, Integer> df = new HashMap<>();
+        for (Artifact artifact : target.values()) {
+            Map<String, Double> counts = counts(artifact.text);
+            targetVectors.put(artifact.id, counts);
+            for (String term : counts.keySet()) {
+                df.put(term, df.containsKey(term) ? df.get(term) + 1 : 1);
+            }
+        }
+        Map<String, Double> idf = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : df.entrySet()) {
+            idf.put(entry.getKey(), Math.log(target.size() / (double) entry.getValue()));
+        }
+        for (Map<String, Double> vector : targetVectors.values()) {
+            weigh(vector, idf);
+        }
+
+        for (Artifact query : source.values()) {
+            Map<String, Double> queryVector = weigh(counts(query.text), idf);
+            final Map<String, Double> cosine = new HashMap<>();
+            for (Map.Entry<String, Map<String, Double>> entry : targetVectors.entrySet()) {
+                cosine.put(entry.getKey(), cosine(queryVector, entry.getValue()));
+            }
+
+            List<String> order = new ArrayList<>(cosine.keySet());
+            Collections.sort(order, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return Double.compare(cosine.get(b), cosine.get(a));
+                }
+            });
+            for (int n = 0; n + 1 < order.size(); n++) {
+                String higher = order.get(n);
+                String lower = order.get(n + 1);
+                double higherScore = lsi.getScoreForLink(query.id, higher);
+                double lowerScore = lsi.getScoreForLink(query.id, lower);
+                if (cosine.get(higher) - cosine.get(lower) > 1e-9) {
+                    assertTrue(query.id + ": " + higher + " before " + lower, higherScore > lowerScore);
+                } else {
+                    assertEquals(higherScore, lowerScore, 1e-9);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Double> counts(String text) {
+        Map<String, Double> counts = new HashMap<>();
+        for (String term : text.split(" ")) {
+            counts.put(term, counts.containsKey(term) ? counts.get(term) + 1 : 1.0);
+        }
+        return counts;
+    }
+
+    /**
+     * count / length * idf, terms the targets do not know are dropped as LSI drops them
+     */
+    private static Map<String, Double> weigh(Map<String, Double> counts, Map<String, Double> idf) {
+        double length = 0.0;
+        for (double count : counts.values()) {
+            length += count;
+        }
+        Iterator<Map.Entry<String, Double>> it = counts.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Double> entry = it.next();
+            if (idf.containsKey(entry.getKey())) {
+                entry.setValue(entry.getValue() / length * idf.get(entry.getKey()));
+            } else {
+                it.remove();
+            }
+        }
+        return counts;
+    }
+
+    private static double cosine(Map<String, Double> a, Map<String, Double> b) {
+        double product = 0.0;
+        for (Map.Entry<String, Double> entry : a.entrySet()) {
+            if (b.containsKey(entry.getKey())) {
+                product += entry.getValue() * b.get(entry.getKey());
+            }
+        }
+        double cross = Math.sqrt(squaredNorm(a) * squaredNorm(b));
+        return cross == 0.0 ? 0.0 : product / cross;
+    }
+
+    private static double squaredNorm(Map<String, Double> vector) {
+        double squared = 0.0;
+        for (double weight : vector.values()) {
+            squared += weight * weight;
+        }
+        return squared;
+    }
+}
@@ -0,0 +1,38 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.IR;
+import edu.nju.cs.inform.core.ir.IRModelConst;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static edu.nju.cs.inform.test.util.RandomArtifacts.randomCollection;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelScoringTest {
+
+    private static final String[] MODELS = {IRModelConst.VSM, IRModelConst.JSD, IRModelConst.BM25,
+            IRModelConst.QueryLikelihood, IRModelConst.LSI};
+
+    @Test
+    public void testParallelEqualsSequential() throws Exception {
+        Random random = new Random(3);
+        ArtifactsCollection source = randomCollection("change", 23, random);
+        ArtifactsCollection target = randomCollection("req", 41, random);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String model : MODELS) {
+                SimilarityMatrix sequential = IR.compute(source, target, model);
+                SimilarityMatrix parallel = IR.compute(source, target, model, pool);
+                // same links in the same order with the same scores
+                assertEquals(model, sequential.toString(), parallel.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.IR;
+import edu.nju.cs.inform.core.ir.IRModelConst;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import edu.nju.cs.inform.test.util.RandomArtifacts;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryLikelihoodTest {
+
+    private static final double MU = 2000;
+
+    /**
+     * The score of a requirement differs from log p(q|d) by a constant of the change only, so the
+     * requirements of a change rank as by their Dirichlet smoothed likelihood.
+     */
+    @Test
+    public void testRanksByDirichletLikelihood() throws Exception {
+        Random random = new Random(11);
+        ArtifactsCollection source = RandomArtifacts.randomCollection("change", 10, random);
+        ArtifactsCollection target = RandomArtifacts.randomCollection("req", 30, random);
+        SimilarityMatrix ql = IR.compute(source, target, IRModelConst.QueryLikelihood);
+
+        Map<String, Double> collectionCounts = new HashMap<>();
+        double collectionLength = 0.0;
+        for (Artifact requirement : target.values()) {
+            for (String term : requirement.text.split(" ")) {
+                collectionCounts.put(term, collectionCounts.containsKey(term) ? collectionCounts.get(term) + 1 : 1.0);
+                collectionLength++;
+            }
+        }
+
+        for (Artifact change : source.values()) {
+            Double offset = null;
+            for (Artifact requirement : target.values()) {
+                String[] terms = requirement.text.split(" ");
+                Map<String, Double> counts = counts(terms);
+                double likelihood = 0.0;
+                for (String term : change.text.split(" ")) {
+                    if (collectionCounts.containsKey(term)) {
+                        double tf = counts.containsKey(term) ? counts.get(term) : 0.0;
+                        likelihood += Math.log((tf + MU * collectionCounts.get(term) / collectionLength) / (terms.length + MU));
+                    }
+                }
+                double difference = ql.getScoreForLink(change.id, requirement.id) - likelihood;
+                if (offset == null) {
+                    offset = difference;
+                }
+                assertEquals(change.id + " " + requirement.id, offset, difference, 1e-9);
+            }
+        }
+    }
+
+    private static Map<String, Double> counts(String[] terms) {
+        Map<String, Double> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.put(term, counts.containsKey(term) ? counts.get(term) + 1 : 1.0);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,97 @@
+package edu.nju.cs.inform.test.core.ir;
+
+import edu.nju.cs.inform.core.ir.IRModelConst;
+import edu.nju.cs.inform.core.ir.Retrieval;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.LinksList;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import edu.nju.cs.inform.core.type.SingleLink;
+import org.junit.Test;
+
+import java.util.*;
+
+import static edu.nju.cs.inform.test.util.RandomArtifacts.WORDS;
+import static edu.nju.cs.inform.test.util.RandomArtifacts.randomCollection;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RetrievalTopKTest {
+
+    @Test
+    public void testTopKEqualsHeadOfFullRank() throws Exception {
+        Random random = new Random(4);
+        ArtifactsCollection changes = randomCollection("change", 12, WORDS, 3, 22, random);
+        ArtifactsCollection requirements = randomCollection("req", 30, WORDS, 3, 22, random);
+        int topK = 5;
+
+        Retrieval full = new Retrieval(changes, requirements, IRModelConst.VSM);
+        full.tracing();
+        Retrieval streaming = new Retrieval(changes, requirements, IRModelConst.VSM);
+        streaming.tracing(topK);
+
+        assertNull(streaming.getSimilarityMatrix());
+        // the full rank is in link order, sort it best first with ties in requirement order
+        final List<String> requirementIds = new ArrayList<>(requirements.keySet());
+        List<Map.Entry<String, Double>> fullRank = new ArrayList<>(full.getCandidateOutdatedRequirementsRank().entrySet());
+        Collections.sort(fullRank, new Comparator<Map.Entry<String, Double>>() {
+            @Override
+            public int compare(Map.Entry<String, Double> o1, Map.Entry<String, Double> o2) {
+                int byScore = o2.getValue().compareTo(o1.getValue());
+                return byScore != 0 ? byScore : requirementIds.indexOf(o1.getKey()) - requirementIds.indexOf(o2.getKey());
+            }
+        });
+        List<Map.Entry<String, Double>> topRank = new ArrayList<>(streaming.getCandidateOutdatedRequirementsRank().entrySet());
+        assertEquals(topK, topRank.size());
+        for (int n = 0; n < topK; n++) {
+            assertEquals(fullRank.get(n).getKey(), topRank.get(n).getKey());
+            assertEquals(fullRank.get(n).getValue(), topRank.get(n).getValue(), 1e-12);
+        }
+
+        // the top links of every change are its best scoring links of the full matrix
+        SimilarityMatrix matrix = full.getSimilarityMatrix();
+        LinksList expected = new LinksList();
+        for (String change : changes.keySet()) {
+            LinksList links = matrix.getLinksAboveThresholdForSourceArtifact(change);
+            Collections.sort(links, Collections.reverseOrder());
+            expected.addAll(links.subList(0, Math.min(topK, links.size())));
+        }
+        LinksList topLinks = streaming.getTopLinks();
+        assertEquals(expected.size(), topLinks.size());
+        for (int n = 0; n < expected.size(); n++) {
+            SingleLink link = topLinks.get(n);
+            assertEquals(expected.get(n).getSourceArtifactId(), link.getSourceArtifactId());
+            assertEquals(expected.get(n).getScore(), link.getScore(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testPerChangeTopKEqualsFullMatrix() throws Exception {
+        Random random = new Random(7);
+        ArtifactsCollection changes = randomCollection("change", 12, WORDS, 3, 22, random);
+        ArtifactsCollection requirements = randomCollection("req", 30, WORDS, 3, 22, random);
+        int topK = 4;
+
+        for (String model : new String[]{IRModelConst.BM25, IRModelConst.QueryLikelihood, IRModelConst.VSM}) {
+            Retrieval full = new Retrieval(changes, requirements, model);
+            full.tracing();
+            Retrieval perChange = new Retrieval(changes, requirements, model);
+            perChange.tracingPerChange(topK);
+
+            SimilarityMatrix matrix = full.getSimilarityMatrix();
+            LinksList topLinks = perChange.getTopLinks();
+            int n = 0;
+            for (String change : changes.keySet()) {
+                LinksList links = matrix.getLinksAboveThresholdForSourceArtifact(change);
+                Collections.sort(links, Collections.reverseOrder());
+                for (SingleLink expected : links.subList(0, Math.min(topK, links.size()))) {
+                    if (expected.getScore() > 0.0) {
+                        SingleLink link = topLinks.get(n++);
+                        assertEquals(model, expected.getSourceArtifactId(), link.getSourceArtifactId());
+                        assertEquals(model, expected.getScore(), link.getScore(), 1e-12);
+                    }
+                }
+            }
+            assertEquals(model, n, topLinks.size());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.nju.cs.inform.test.core.jdt;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.core.jdt.CompilationUnitRegistry;
+import edu.nju.cs.inform.io.PreprocessingCache;
+import edu.nju.cs.inform.test.util.SourceVersions;
+import edu.nju.cs.inform.util.ContentHash;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompilationUnitRegistryTest {
+
+    private static final String SOURCE = "package irrigation;\n\npublic class Zone {\n    int zoneNumber;\n}\n";
+
+    @Rule
+    public SourceVersions versions = new SourceVersions();
+
+    @Test
+    public void testUnitsKeyedByContent() throws Exception {
+        Map<String, String> sources = new HashMap<>();
+        sources.put(ContentHash.sha1(SOURCE), SOURCE);
+
+        CompilationUnitRegistry registry = new CompilationUnitRegistry();
+        registry.parseSources(sources, null);
+        registry.parseSources(sources, null);
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.getNumParsed());
+
+        CompilationUnit unit = registry.getCompilationUnit(SOURCE);
+        assertSame(unit, registry.getCompilationUnit(new String(SOURCE.toCharArray())));
+        assertEquals(1, registry.getNumParsed());
+        assertTrue(unit.types().get(0).toString().contains("class Zone"));
+    }
+
+    @Test
+    public void testClearedAfterDiffElements() throws Exception {
+        String newVersion = "data/sample/AquaLush_Change4";
+        String oldVersion = "data/sample/AquaLush_Change3";
+        CodeElementsComparer comparer = new CodeElementsComparer(newVersion, oldVersion);
+        CompilationUnitRegistry registry = comparer.getCompilationUnitRegistry();
+        int parsed = registry.getNumParsed();
+        assertEquals(parsed, registry.size());
+        // files that did not change between the versions share one unit
+        assertTrue(parsed > 0 && parsed < countJavaFiles(newVersion) + countJavaFiles(oldVersion));
+
+        comparer.diffElements();
+        assertEquals(0, registry.size());
+        assertEquals(parsed, registry.getNumParsed());
+    }
+
+    @Test
+    public void testCachedElementsAreNotParsed() throws Exception {
+        String newVersion = "data/sample/AquaLush_Change4";
+        String oldVersion = "data/sample/AquaLush_Change3";
+        PreprocessingCache cache = new PreprocessingCache(versions.newDirectory("cache").getPath());
+        new CodeElementsComparer(newVersion, oldVersion, null, cache).diffElements();
+
+        CodeElementsComparer cached = new CodeElementsComparer(newVersion, oldVersion, null, cache);
+        cached.diffElements();
+        assertEquals(0, cached.getCompilationUnitRegistry().getNumParsed());
+    }
+
+    private static int countJavaFiles(String dirPath) {
+        int count = 0;
+        for (String name : new File(dirPath).list()) {
+            if (name.endsWith(".java")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.nju.cs.inform.test.core.jdt;
+
+import edu.nju.cs.inform.core.diff.SourceCodeElements;
+import edu.nju.cs.inform.core.jda.type.CallRelationAnalyser;
+import edu.nju.cs.inform.core.jda.type.JDACallRelation;
+import edu.nju.cs.inform.core.type.Artifact;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TypeDeclarationsTest {
+
+    private static final String SOURCE = "package irrigation;\n"
+            + "\n"
+            + "import device.Valve;\n"
+            + "\n"
+            + "public class Zone {\n"
+            + "    private Valve valve;\n"
+            + "\n"
+            + "    public void open() { valve.open(); }\n"
+            + "\n"
+            + "    class Sensor {\n"
+            + "        private int moisture;\n"
+            + "\n"
+            + "        void check() { valve.close(); }\n"
+            + "    }\n"
+            + "\n"
+            + "    enum Level {\n"
+            + "        LOW, HIGH(2);\n"
+            + "\n"
+            + "        Level() { }\n"
+            + "        Level(int factor) { }\n"
+            + "    }\n"
+            + "}\n"
+            + "\n"
+            + "@interface Scheduled {\n"
+            + "    int hour() default 6;\n"
+            + "}\n"
+            + "\n"
+            + "class ZoneReport {\n"
+            + "    private Valve valve;\n"
+            + "\n"
+            + "    String report() { return valve.state(); }\n"
+            + "}\n";
+
+    @Test
+    public void testEveryTypeIsModeled() throws Exception {
+        SourceCodeElements elements = SourceCodeElements.parse(SOURCE);
+
+        assertEquals(Arrays.asList("irrigation.Zone", "irrigation.Zone$Sensor", "irrigation.Zone$Level",
+                "irrigation.Scheduled", "irrigation.ZoneReport"), Arrays.asList(elements.getClassesList().toArray()));
+        assertTrue(elements.getFieldsList().contains("irrigation.Zone$Sensor.moisture"));
+        assertTrue(elements.getFieldsList().contains("irrigation.Zone$Level.LOW"));
+        assertTrue(elements.getFieldsList().contains("irrigation.Zone$Level.HIGH"));
+        assertTrue(elements.getMethodsList().contains("irrigation.Zone$Sensor.check"));
+        assertTrue(elements.getMethodsList().contains("irrigation.Scheduled.hour"));
+        assertTrue(elements.getMethodsList().contains("irrigation.ZoneReport.report"));
+        assertTrue(elements.getMethodSignaturesList().contains("irrigation.Zone$Level.<init>()"));
+        assertTrue(elements.getMethodSignaturesList().contains("irrigation.Zone$Level.<init>(int)"));
+        assertTrue(elements.getMethodSignaturesList().contains("irrigation.Scheduled.hour()"));
+    }
+
+    @Test
+    public void testCallRelationsOfEveryType() throws Exception {
+        CallRelationAnalyser analyser = new CallRelationAnalyser(new Artifact("Zone", SOURCE), null);
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("Zone", "Zone$Sensor", "Zone$Level", "Scheduled", "ZoneReport")),
+                analyser.getClassNames());
+        Set<String> relations = new LinkedHashSet<>();
+        for (JDACallRelation relation : analyser.getRukiaCallRelationsList()) {
+            relations.add(relation.toString());
+        }
+        // the member type sees the field of the type enclosing it
+        assertEquals(new LinkedHashSet<>(Arrays.asList("irrigation.Zone.open device.Valve.open",
+                "irrigation.Zone$Sensor.check device.Valve.close",
+                "irrigation.ZoneReport.report device.Valve.state")), relations);
+    }
+}
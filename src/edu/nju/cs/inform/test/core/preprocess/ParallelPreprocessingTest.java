@@ -0,0 +1,69 @@
+package edu.nju.cs.inform.test.core.preprocess;
+
+import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+import edu.nju.cs.inform.core.type.TokenizedArtifact;
+import edu.nju.cs.inform.util._;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelPreprocessingTest {
+
+    @Test
+    public void testParallelEqualsSequential() throws Exception {
+        ArtifactsCollection sources = new ArtifactsCollection();
+        readSources(new File("data/sample"), sources);
+        assertTrue(sources.size() > 100);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameArtifacts(ArtifactPreprocessor.handleJavaFiles(sources, null),
+                    ArtifactPreprocessor.handleJavaFiles(sources, pool));
+            assertSameArtifacts(ArtifactPreprocessor.handlePureTextFiles(sources, null),
+                    ArtifactPreprocessor.handlePureTextFiles(sources, pool));
+
+            // term ids are interned in collection order, whatever thread tokenized the artifact
+            assertSameArtifacts(ArtifactPreprocessor.handleJavaFiles(sources, new TermVocabulary(), null),
+                    ArtifactPreprocessor.handleJavaFiles(sources, new TermVocabulary(), pool));
+            assertSameArtifacts(ArtifactPreprocessor.handlePureTextFiles(sources, new TermVocabulary(), null),
+                    ArtifactPreprocessor.handlePureTextFiles(sources, new TermVocabulary(), pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameArtifacts(ArtifactsCollection sequential, ArtifactsCollection parallel) {
+        assertEquals(new ArrayList<>(sequential.keySet()), new ArrayList<>(parallel.keySet()));
+        for (Artifact expected : sequential.values()) {
+            Artifact actual = parallel.get(expected.id);
+            assertEquals(expected.id, TokenizedArtifact.getText(expected), TokenizedArtifact.getText(actual));
+            if (expected instanceof TokenizedArtifact) {
+                assertArrayEquals(expected.id, ((TokenizedArtifact) expected).getTermIds(),
+                        ((TokenizedArtifact) actual).getTermIds());
+            }
+        }
+    }
+
+    private static void readSources(File dir, ArtifactsCollection sources) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                readSources(f, sources);
+            } else if (f.getName().endsWith(".java") || f.getName().endsWith(".txt")) {
+                sources.put(f.getPath(), new Artifact(f.getPath(), _.readFile(f.getPath())));
+            }
+        }
+    }
+}
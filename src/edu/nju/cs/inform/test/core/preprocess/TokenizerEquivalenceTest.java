@@ -0,0 +1,77 @@
+package edu.nju.cs.inform.test.core.preprocess;
+
+import edu.nju.cs.inform.console.TokenizerBenchmark;
+import edu.nju.cs.inform.core.preprocess.CamelCase;
+import edu.nju.cs.inform.core.preprocess.CleanUp;
+import edu.nju.cs.inform.core.preprocess.SentenceSplitter;
+import edu.nju.cs.inform.util._;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The character-class scanners of CleanUp, CamelCase and SentenceSplitter against the regex
+ * versions they replaced, see TokenizerBenchmark for the timings.
+ */
+public class TokenizerEquivalenceTest {
+
+    private static final List<String> EDGE_CASES = Arrays.asList("", " ", "  a  ", "a|b", "x1y2z", "__init__",
+            "HTTPServer", "getHTTPResponseCode", "ABC", "aB", "Ab", "naïve café", "line\nbreak\ttab",
+            "set_level-scrn.state", "ÄÖÜ mixed Ünicode");
+
+    @Test
+    public void testChararctorClean() throws Exception {
+        for (String input : inputs()) {
+            assertEquals(input, TokenizerBenchmark.regexChararctorClean(input), CleanUp.chararctorClean(input));
+        }
+    }
+
+    @Test
+    public void testCamelCaseSplit() throws Exception {
+        for (String input : inputs()) {
+            String cleaned = CleanUp.chararctorClean(input);
+            assertEquals(cleaned, TokenizerBenchmark.regexCamelCaseSplit(cleaned), CamelCase.split(cleaned));
+        }
+    }
+
+    @Test
+    public void testSentenceSplitterProcess() throws Exception {
+        for (String input : inputs()) {
+            String camelCased = CamelCase.split(CleanUp.chararctorClean(input));
+            assertEquals(camelCased, TokenizerBenchmark.regexSentenceSplitterProcess(camelCased),
+                    SentenceSplitter.process(camelCased));
+            // the splitter also sees raw text with digits and punctuation
+            assertEquals(input, TokenizerBenchmark.regexSentenceSplitterProcess(input), SentenceSplitter.process(input));
+        }
+    }
+
+    private static List<String> inputs() {
+        List<String> inputs = new ArrayList<>(EDGE_CASES);
+        List<String> sources = readSources(new File("data/sample"));
+        assertTrue("no sources under data/sample", !sources.isEmpty());
+        inputs.addAll(sources);
+        return inputs;
+    }
+
+    private static List<String> readSources(File dir) {
+        List<String> sources = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return sources;
+        }
+        for (File f : files) {
+            if (f.isDirectory()) {
+                sources.addAll(readSources(f));
+            } else if (f.getName().endsWith(".java") || f.getName().endsWith(".txt")) {
+                sources.add(_.readFile(f.getPath()));
+            }
+        }
+        return sources;
+    }
+}
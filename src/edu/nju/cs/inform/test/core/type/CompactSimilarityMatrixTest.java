@@ -0,0 +1,75 @@
+package edu.nju.cs.inform.test.core.type;
+
+import edu.nju.cs.inform.core.ir.IRModelConst;
+import edu.nju.cs.inform.core.ir.Retrieval;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.CompactSimilarityMatrix;
+import edu.nju.cs.inform.core.type.SimilarityMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static edu.nju.cs.inform.test.util.RandomArtifacts.WORDS;
+import static edu.nju.cs.inform.test.util.RandomArtifacts.randomCollection;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CompactSimilarityMatrixTest {
+
+    @Test
+    public void testRankInLinkOrder() throws Exception {
+        Random random = new Random(5);
+        ArtifactsCollection changes = randomCollection("change", 8, WORDS, 3, 17, random);
+        ArtifactsCollection requirements = randomCollection("req", 25, WORDS, 3, 17, random);
+
+        Retrieval maps = new Retrieval(changes, requirements, IRModelConst.VSM);
+        maps.tracing();
+        Retrieval compact = new Retrieval(changes, requirements, IRModelConst.VSM);
+        compact.setCompactSimilarityMatrix(true);
+        compact.tracing();
+
+        assertEquals(new ArrayList<>(maps.getCandidateOutdatedRequirementsRank().keySet()),
+                new ArrayList<>(compact.getCandidateOutdatedRequirementsRank().keySet()));
+    }
+
+    @Test
+    public void testCopyHoldsTheLinks() throws Exception {
+        CompactSimilarityMatrix compact = new CompactSimilarityMatrix(Arrays.asList("a", "b"), Arrays.asList("x", "y", "z"));
+        compact.setScore(0, 1, 0.5f);
+        compact.setScore(1, 0, 0.25f);
+        compact.setScore(1, 2, 0.75f);
+
+        SimilarityMatrix copy = new SimilarityMatrix(compact);
+        assertEquals(3, copy.count());
+        assertEquals(0.75, copy.getScoreForLink("b", "z"), 0.0);
+        assertEquals(compact.toString(), copy.toString());
+    }
+
+    @Test
+    public void testTopTargets() throws Exception {
+        CompactSimilarityMatrix compact = new CompactSimilarityMatrix(Collections.singletonList("a"),
+                Arrays.asList("t0", "t1", "t2", "t3", "t4"));
+        compact.setScore(0, 0, 0.2f);
+        compact.setScore(0, 1, 0.9f);
+        compact.setScore(0, 2, 0.2f);
+        compact.setScore(0, 4, 0.5f);
+
+        int[] out = new int[3];
+        assertEquals(3, compact.topTargets(0, 3, out));
+        // the tie at 0.2 goes to the lower index
+        assertArrayEquals(new int[]{1, 4, 0}, out);
+
+        int[] all = new int[5];
+        assertEquals(4, compact.topTargets(0, 5, all));
+        assertArrayEquals(new int[]{1, 4, 0, 2}, Arrays.copyOf(all, 4));
+        assertEquals(0, compact.topTargets(0, 0, out));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyLinks() throws Exception {
+        new CompactSimilarityMatrix(Collections.nCopies(70000, "s"), Collections.nCopies(70000, "t"));
+    }
+}
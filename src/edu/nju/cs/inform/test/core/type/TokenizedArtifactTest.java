@@ -0,0 +1,55 @@
+package edu.nju.cs.inform.test.core.type;
+
+import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.SparseTermDocumentMatrix;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+import edu.nju.cs.inform.core.type.TokenizedArtifact;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenizedArtifactTest {
+
+    @Test
+    public void testReassignedTextWins() throws Exception {
+        TokenizedArtifact artifact = ArtifactPreprocessor.handlePureTextFile("SRS1",
+                "The valve opens when the moisture sensor reports dry soil.", new TermVocabulary());
+        // the text is only joined on request, and still matches the term ids
+        assertNull(artifact.text);
+        assertTrue(artifact.matchesText());
+        assertArrayEquals(TokenizedArtifact.getText(artifact).split(" "), TokenizedArtifact.getTerms(artifact));
+        assertTrue(artifact.matchesText());
+
+        artifact.text = "alarm panel alarm";
+        assertFalse(artifact.matchesText());
+        assertArrayEquals(new String[]{"alarm", "panel", "alarm"}, TokenizedArtifact.getTerms(artifact));
+
+        ArtifactsCollection collection = new ArtifactsCollection();
+        collection.put(artifact.id, artifact);
+        SparseTermDocumentMatrix matrix = new SparseTermDocumentMatrix(collection);
+        assertEquals(2, matrix.NumTerms());
+        assertEquals(2.0, matrix.getValue("SRS1", "alarm"), 0.0);
+        assertFalse(matrix.containsTerm("valv"));
+    }
+
+    @Test
+    public void testMatrixFromIdsEqualsMatrixFromText() throws Exception {
+        ArtifactsCollection tokenized = new ArtifactsCollection();
+        ArtifactsCollection plain = new ArtifactsCollection();
+        TermVocabulary vocabulary = new TermVocabulary();
+        String[] texts = {"Valves open and close the irrigation zones.", "", "The and", "Zones report moisture levels."};
+        for (int i = 0; i < texts.length; i++) {
+            TokenizedArtifact artifact = ArtifactPreprocessor.handlePureTextFile("SRS" + i, texts[i], vocabulary);
+            assertArrayEquals(ArtifactPreprocessor.handlePureTextFile(texts[i]).split(" "), TokenizedArtifact.getTerms(artifact));
+            tokenized.put(artifact.id, artifact);
+            plain.put(artifact.id, new Artifact(artifact.id, TokenizedArtifact.getText(artifact)));
+        }
+        assertEquals(new SparseTermDocumentMatrix(plain).toString(), new SparseTermDocumentMatrix(tokenized).toString());
+    }
+}
@@ -0,0 +1,77 @@
+package edu.nju.cs.inform.test.io;
+
+import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.core.type.TermVocabulary;
+import edu.nju.cs.inform.core.type.TokenizedArtifact;
+import edu.nju.cs.inform.io.CorpusIndex;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CorpusIndexTest {
+
+    @Test
+    public void testSavedIndexGivesThePreprocessorOutput() throws Exception {
+        ArtifactsCollection requirements = new ArtifactsCollection();
+        put(requirements, "SRS1", "The valve opens when the moisture sensor reports dry soil, valve closes later.");
+        put(requirements, "SRS2", "Alarms are shown on the control panel.");
+        put(requirements, "SRS3", "");
+        put(requirements, "SRS4", "The and");
+
+        File file = File.createTempFile("corpus", ".index");
+        try {
+            CorpusIndex index = CorpusIndex.load(file.getPath());
+            index.update(requirements);
+            assertEquals(4, index.getNumPreprocessed());
+            index.save(file.getPath());
+
+            CorpusIndex loaded = CorpusIndex.load(file.getPath());
+            assertEquals(4, loaded.NumDocs());
+            assertSameAsPreprocessor(requirements, loaded.getPreprocessedCollection());
+
+            // only the changed requirement is preprocessed again
+            put(requirements, "SRS2", "Alarms are shown on the control panel and the display.");
+            loaded.update(requirements);
+            assertEquals(1, loaded.getNumPreprocessed());
+            assertSameAsPreprocessor(requirements, loaded.getPreprocessedCollection());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptIndexLoadsEmpty() throws Exception {
+        File file = File.createTempFile("corpus", ".index");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(0x494E4649);
+                out.writeInt(2);
+                // a settings string claiming two gigabytes
+                out.writeInt(Integer.MAX_VALUE);
+            }
+            assertEquals(0, CorpusIndex.load(file.getPath()).NumDocs());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertSameAsPreprocessor(ArtifactsCollection raw, ArtifactsCollection preprocessed) {
+        for (Artifact artifact : raw.values()) {
+            TokenizedArtifact expected = ArtifactPreprocessor.handlePureTextFile(artifact.id, artifact.text, new TermVocabulary());
+            Artifact actual = preprocessed.get(artifact.id);
+            assertEquals(expected.text, actual.text);
+            assertArrayEquals(TokenizedArtifact.getTerms(expected), TokenizedArtifact.getTerms(actual));
+        }
+    }
+
+    private static void put(ArtifactsCollection collection, String id, String text) {
+        collection.put(id, new Artifact(id, text));
+    }
+}
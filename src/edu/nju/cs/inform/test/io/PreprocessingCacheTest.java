@@ -0,0 +1,136 @@
+package edu.nju.cs.inform.test.io;
+
+import edu.nju.cs.inform.core.preprocess.ArtifactPreprocessor;
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+import edu.nju.cs.inform.io.PreprocessingCache;
+import edu.nju.cs.inform.util.AppConfigure;
+import edu.nju.cs.inform.util.ContentHash;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class PreprocessingCacheTest {
+
+    private static final String SOURCE = "public class ValveController { void openValve(int zoneNumber) { } }";
+
+    private File cacheDir;
+    private String codeStopwords;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = Files.createTempDirectory("preprocessing").toFile();
+        codeStopwords = AppConfigure.CodeStopwords;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AppConfigure.CodeStopwords = codeStopwords;
+        File[] entries = cacheDir.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                entry.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void testKeyedOnStopwordContents() throws Exception {
+        File stopwords = writeStopwords("void\nclass\npublic\n");
+        File reordered = writeStopwords("public\r\nvoid\r\nclass\r\n");
+        File other = writeStopwords("void\n");
+        try {
+            PreprocessingCache cache = new PreprocessingCache(cacheDir.getPath());
+            AppConfigure.CodeStopwords = stopwords.getPath();
+            cache.handleJavaFile(SOURCE);
+            assertEquals(1, cache.getMisses());
+
+            // the same words in another file reuse the entry
+            AppConfigure.CodeStopwords = reordered.getPath();
+            cache.handleJavaFile(SOURCE);
+            assertEquals(1, cache.getHits());
+
+            AppConfigure.CodeStopwords = other.getPath();
+            assertEquals(ArtifactPreprocessor.handleJavaFile(SOURCE), cache.handleJavaFile(SOURCE));
+            assertEquals(2, cache.getMisses());
+        } finally {
+            stopwords.delete();
+            reordered.delete();
+            other.delete();
+        }
+    }
+
+    @Test
+    public void testCollectionIsNotModified() throws Exception {
+        ArtifactsCollection sources = new ArtifactsCollection();
+        sources.put("ValveController.java", new Artifact("ValveController.java", SOURCE));
+        sources.put("Zone.java", new Artifact("Zone.java", "class Zone { int zoneNumber; }"));
+        ArtifactsCollection expected = ArtifactPreprocessor.handleJavaFiles(sources, null);
+
+        PreprocessingCache cache = new PreprocessingCache(cacheDir.getPath());
+        cache.handleJavaFile(SOURCE);
+        for (int round = 0; round < 2; round++) {
+            ArtifactsCollection preprocessed = cache.handleJavaFiles(sources, null);
+            assertEquals(new ArrayList<>(sources.keySet()), new ArrayList<>(preprocessed.keySet()));
+            for (Artifact artifact : expected.values()) {
+                assertEquals(artifact.text, preprocessed.get(artifact.id).text);
+                assertNotSame(sources.get(artifact.id), preprocessed.get(artifact.id));
+            }
+        }
+        assertEquals(SOURCE, sources.get("ValveController.java").text);
+        assertEquals(2, cache.getMisses());
+        assertEquals(3, cache.getHits());
+    }
+
+    @Test
+    public void testCorruptEntryIsAMiss() throws Exception {
+        File entry = new File(cacheDir, ContentHash.sha1(SOURCE) + ".pre");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(entry))) {
+            out.writeInt(3);
+            // a settings string claiming two gigabytes
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        PreprocessingCache cache = new PreprocessingCache(cacheDir.getPath());
+        assertEquals(ArtifactPreprocessor.handleJavaFile(SOURCE), cache.handleJavaFile(SOURCE));
+        assertEquals(1, cache.getMisses());
+        // the entry was rewritten
+        assertEquals(ArtifactPreprocessor.handleJavaFile(SOURCE), cache.handleJavaFile(SOURCE));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testEvictsDownToTheBound() throws Exception {
+        long maxBytes = 4096;
+        PreprocessingCache cache = new PreprocessingCache(cacheDir.getPath(), maxBytes);
+        for (int i = 0; i < 200; i++) {
+            cache.handleJavaFile(SOURCE + " class Zone" + i + " { }");
+        }
+
+        long total = 0;
+        File[] entries = cacheDir.listFiles();
+        for (File entry : entries) {
+            total += entry.length();
+        }
+        assertTrue(total + " bytes", total <= maxBytes);
+        assertTrue(entries.length > 0);
+    }
+
+    private static File writeStopwords(String content) throws IOException {
+        File file = File.createTempFile("stopwords", ".txt");
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        return file;
+    }
+}
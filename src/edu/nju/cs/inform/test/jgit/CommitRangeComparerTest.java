@@ -0,0 +1,88 @@
+package edu.nju.cs.inform.test.jgit;
+
+import edu.nju.cs.inform.core.diff.CodeElementsComparer;
+import edu.nju.cs.inform.jgit.CommitRangeComparer;
+import edu.nju.cs.inform.test.util.SourceVersions;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static edu.nju.cs.inform.test.util.SourceVersions.describe;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommitRangeComparerTest {
+
+    private static final String NEW_VERSION = "data/sample/AquaLush_Change4";
+    private static final String OLD_VERSION = "data/sample/AquaLush_Change3";
+
+    @Rule
+    public SourceVersions versions = new SourceVersions();
+
+    private Path repositoryDir;
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception {
+        repositoryDir = versions.newDirectory("commits").toPath();
+        git = Git.init().setDirectory(repositoryDir.toFile()).call();
+        commitVersion(OLD_VERSION, "change 3");
+        commitVersion(NEW_VERSION, "change 4");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        git.close();
+    }
+
+    @Test
+    public void testEqualsFullDiff() throws Exception {
+        CommitRangeComparer commits = new CommitRangeComparer(git.getRepository(), "HEAD~1", "HEAD");
+        commits.diff();
+        assertTrue(commits.getChangedFilePaths().size() < new File(NEW_VERSION).list().length);
+
+        CodeElementsComparer directories = new CodeElementsComparer(NEW_VERSION, OLD_VERSION);
+        directories.diffElements();
+
+        CodeElementsComparer changedFiles = commits.getCodeElementsComparer();
+        assertEquals(describe(directories.getCodeElementChangesList()), describe(changedFiles.getCodeElementChangesList()));
+        assertEquals(describe(directories.getMethodSignatureChangesList()),
+                describe(changedFiles.getMethodSignatureChangesList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRevision() throws Exception {
+        new CommitRangeComparer(git.getRepository(), "HEAD~5", "HEAD");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoChangeRegions() throws Exception {
+        new CommitRangeComparer(git.getRepository(), "HEAD~1", "HEAD").getCodeElementsComparer().diff();
+    }
+
+    /**
+     * Replaces the java files of the work tree with those of a version directory and commits them
+     */
+    private void commitVersion(String versionDir, String message) throws Exception {
+        File[] old = repositoryDir.toFile().listFiles();
+        for (File f : old) {
+            if (f.getName().endsWith(".java")) {
+                Files.delete(f.toPath());
+            }
+        }
+        for (File f : new File(versionDir).listFiles()) {
+            if (f.getName().endsWith(".java")) {
+                Files.copy(f.toPath(), repositoryDir.resolve(f.getName()));
+            }
+        }
+        git.add().addFilepattern(".").call();
+        git.add().setUpdate(true).addFilepattern(".").call();
+        git.commit().setMessage(message).setAuthor("test", "test@example.com").setCommitter("test", "test@example.com").call();
+    }
+}
@@ -0,0 +1,58 @@
+package edu.nju.cs.inform.test.util;
+
+import edu.nju.cs.inform.core.type.Artifact;
+import edu.nju.cs.inform.core.type.ArtifactsCollection;
+
+import java.util.Random;
+
+/**
+ * Random artifact collections for the tests that check a fast scoring path against a plain one.
+ */
+public class RandomArtifacts {
+
+    public static final String[] WORDS = {"water", "valve", "sensor", "zone", "irrigation", "moisture", "level",
+            "schedule", "clock", "display", "button", "pump", "pipe", "alarm", "report", "setting", "cycle",
+            "panel", "device", "failure", "critical", "garden", "season", "manual", "automatic"};
+
+    private RandomArtifacts() {
+    }
+
+    /**
+     * Artifacts prefix0..prefix(numDocs-1) of 1 to 30 terms out of term0..term59
+     */
+    public static ArtifactsCollection randomCollection(String prefix, int numDocs, Random random) {
+        return randomCollection(prefix, numDocs, terms("term", 60), 1, 30, random);
+    }
+
+    /**
+     * Artifacts prefix0..prefix(numDocs-1) of minLength to maxLength words drawn from the vocabulary
+     */
+    public static ArtifactsCollection randomCollection(String prefix, int numDocs, String[] vocabulary,
+                                                       int minLength, int maxLength, Random random) {
+        ArtifactsCollection collection = new ArtifactsCollection();
+        for (int i = 0; i < numDocs; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = minLength + random.nextInt(maxLength - minLength + 1);
+            for (int n = 0; n < length; n++) {
+                if (n > 0) {
+                    text.append(' ');
+                }
+                text.append(vocabulary[random.nextInt(vocabulary.length)]);
+            }
+            String id = prefix + i;
+            collection.put(id, new Artifact(id, text.toString()));
+        }
+        return collection;
+    }
+
+    /**
+     * prefix0..prefix(numTerms-1)
+     */
+    public static String[] terms(String prefix, int numTerms) {
+        String[] terms = new String[numTerms];
+        for (int t = 0; t < numTerms; t++) {
+            terms[t] = prefix + t;
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,69 @@
+package edu.nju.cs.inform.test.util;
+
+import edu.nju.cs.inform.core.type.CodeElementChange;
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Temporary version directories for the diff tests, deleted with everything below them after
+ * each test, and a comparable description of the changes found between two versions.
+ */
+public class SourceVersions extends ExternalResource {
+
+    private final List<File> directories = new ArrayList<>();
+
+    /**
+     * A new empty directory, deleted after the test
+     */
+    public File newDirectory(String prefix) throws IOException {
+        File directory = Files.createTempDirectory(prefix).toFile();
+        directories.add(directory);
+        return directory;
+    }
+
+    /**
+     * A new directory holding one file of the given content, deleted after the test
+     */
+    public File newVersion(String prefix, String fileName, String content) throws IOException {
+        File directory = newDirectory(prefix);
+        Files.write(new File(directory, fileName).toPath(), content.getBytes("UTF-8"));
+        return directory;
+    }
+
+    @Override
+    protected void after() {
+        for (File directory : directories) {
+            delete(directory);
+        }
+        directories.clear();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * "name type change" of each change, sorted
+     */
+    public static List<String> describe(Set<CodeElementChange> changes) {
+        List<String> described = new ArrayList<>();
+        for (CodeElementChange change : changes) {
+            described.add(change.getElementName() + " " + change.getElementType() + " " + change.getChangeType());
+        }
+        Collections.sort(described);
+        return described;
+    }
+}
@@ -4,6 +4,9 @@ package edu.nju.cs.inform.util; /**
 
 public class AppConfigure {
     public static final String Stopwords = "data/stopwords/stop-words_english_1_en.txt";
+    // stop-word lists used for source code and for requirements, both default to Stopwords
+    public static String CodeStopwords = Stopwords;
+    public static String RequirementStopwords = Stopwords;
     public static final int levels = 0;
     public static String[] filterExternalPackageNames = { "java.", "org.",
             "com." };
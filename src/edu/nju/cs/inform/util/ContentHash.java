@@ -0,0 +1,30 @@
+package edu.nju.cs.inform.util;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-1 digest of an artifact's text, used to tell unchanged artifacts apart between runs.
+ */
+public class ContentHash {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static String sha1(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(content.getBytes(Charset.forName("UTF-8")));
+
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
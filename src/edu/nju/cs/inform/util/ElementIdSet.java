@@ -0,0 +1,49 @@
+package edu.nju.cs.inform.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Ids of an ElementSymbolTable in the order they were added, membership is a bit test.
+ */
+public class ElementIdSet {
+
+    private final BitSet members;
+    private int[] ids;
+    private int size;
+
+    public ElementIdSet() {
+        members = new BitSet();
+        ids = new int[16];
+    }
+
+    /**
+     * @return true if the id was not in the set
+     */
+    public boolean add(int id) {
+        if (members.get(id)) {
+            return false;
+        }
+        members.set(id);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && members.get(id);
+    }
+
+    /**
+     * @return the index-th id added
+     */
+    public int get(int index) {
+        return ids[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
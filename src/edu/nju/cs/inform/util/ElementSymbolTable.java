@@ -0,0 +1,162 @@
+package edu.nju.cs.inform.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the fully qualified names of packages, classes, methods and fields into int ids.
+ *
+ * Every name is split once, when it is interned: its parent is the name without the last
+ * segment, its class and package are the ones JavaElement gives. They are interned as well and
+ * kept as ids, so looking them up again is an array access.
+ *
+ * A table lives as long as the comparison it belongs to: CodeElementsComparer creates one per
+ * run and both versions, ChangedArtifacts and RelationInfo share it, so an id means the same
+ * element everywhere in that run. Nothing is interned into a table that outlives it.
+ *
+ * Interning can happen from several threads at once, looking names up needs no lock.
+ */
+public class ElementSymbolTable {
+
+    public static final int NONE = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids;
+    // written under the lock before the id is published in ids
+    private volatile String[] names;
+    private volatile String[] identifiers;
+    private volatile int[] parents;
+    private volatile int[] classIds;
+    private volatile int[] packageIds;
+    private int size;
+
+    public ElementSymbolTable() {
+        ids = new ConcurrentHashMap<>();
+        names = new String[256];
+        identifiers = new String[256];
+        parents = new int[256];
+        classIds = new int[256];
+        packageIds = new int[256];
+    }
+
+    /**
+     * @return id of the name, NONE if it was never interned
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? NONE : id;
+    }
+
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        // only shorter related names are interned first, so this ends
+        int lastDot = name.lastIndexOf('.');
+        int parent = lastDot < 0 ? NONE : intern(name.substring(0, lastDot));
+        String className = split(name, Part.CLASS);
+        String packageName = split(name, Part.PACKAGE);
+        String identifier = split(name, Part.IDENTIFIER);
+        int classId = internShorter(className, name);
+        int packageId = internShorter(packageName, name);
+
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            id = size++;
+            if (id == names.length) {
+                grow();
+            }
+            names[id] = name;
+            identifiers[id] = identifier;
+            parents[id] = parent;
+            // a name that is its own class or package points to itself
+            classIds[id] = name.equals(className) ? id : classId;
+            packageIds[id] = name.equals(packageName) ? id : packageId;
+            ids.put(name, id);
+            return id;
+        }
+    }
+
+    /**
+     * @return the instance of the name kept by the table
+     */
+    public String canonical(String name) {
+        return names[intern(name)];
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return id of the name without its last segment, NONE for a name without '.'
+     */
+    public int getParent(int id) {
+        return parents[id];
+    }
+
+    /**
+     * @return id of JavaElement.getClassName of the name, NONE if it is not interned
+     */
+    public int getClassId(int id) {
+        return classIds[id];
+    }
+
+    /**
+     * @return id of JavaElement.getPackageName of the name, NONE if it is not interned
+     */
+    public int getPackageId(int id) {
+        return packageIds[id];
+    }
+
+    public String getIdentifier(int id) {
+        return identifiers[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * JavaElement gives a class name with a trailing '.' for a name without one, such a name is
+     * longer and not interned.
+     */
+    private int internShorter(String related, String name) {
+        return related != null && related.length() < name.length() ? intern(related) : NONE;
+    }
+
+    private void grow() {
+        int length = names.length * 2;
+        identifiers = Arrays.copyOf(identifiers, length);
+        parents = Arrays.copyOf(parents, length);
+        classIds = Arrays.copyOf(classIds, length);
+        packageIds = Arrays.copyOf(packageIds, length);
+        names = Arrays.copyOf(names, length);
+    }
+
+    enum Part {
+        CLASS, PACKAGE, IDENTIFIER
+    }
+
+    /**
+     * @return the part of the name as JavaElement splits it, null where JavaElement throws
+     */
+    private static String split(String name, Part part) {
+        try {
+            switch (part) {
+                case CLASS:
+                    return JavaElement.getClassName(name);
+                case PACKAGE:
+                    return JavaElement.getPackageName(name);
+                default:
+                    return JavaElement.getIdentifier(name);
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}